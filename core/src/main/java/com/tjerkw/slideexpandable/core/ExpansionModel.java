@@ -0,0 +1,477 @@
+package com.tjerkw.slideexpandable.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds which positions of a list are expanded.
+ *
+ * The state is kept in an immutable Snapshot, which is replaced (copy on
+ * write) on every change. Any thread can read the current snapshot
+ * without locking, for example to prefetch the details of the
+ * expanded items.
+ *
+ * Changes can be requested from any thread with expand, collapse,
+ * setExpanded and collapseAll. They are posted to the UI thread, and all
+ * changes posted before it runs are applied together, so the list does a
+ * single layout pass for them.
+ *
+ * In multiple expansion mode the number of expanded items can be capped
+ * with setMaxExpanded, expanding another item then collapses the one that
+ * was expanded least recently.
+ *
+ * The methods that apply a change at once (applyExpanded, restore,
+ * insertRange, removeRange and move) must only be called on the UI thread.
+ * Changes that are posted but not applied yet use the positions from
+ * before a range change, so insertRange, removeRange and move apply them
+ * first.
+ *
+ * This class does not depend on Android, the UI thread is given as an
+ * Executor. In the library, the AbstractSlideExpandableListAdapter is a
+ * view of this model, get it with getExpansionModel().
+ */
+public class ExpansionModel {
+	/**
+	 * Listener for changes that were posted to the model.
+	 */
+	public interface OnExpansionChangedListener {
+		/**
+		 * Called on the UI thread, once for each batch of posted changes.
+		 * It is not called if the batch leaves the state as it was, for
+		 * example when an item is expanded and collapsed again before
+		 * the batch is applied.
+		 *
+		 * @param previous the snapshot before the changes
+		 * @param current the snapshot after the changes
+		 */
+		public void onExpansionChanged(Snapshot previous, Snapshot current);
+	}
+
+	/**
+	 * An immutable state of the model.
+	 */
+	public static final class Snapshot {
+		static final Snapshot EMPTY = new Snapshot(new BitSet(), -1, new int[0]);
+
+		/**
+		 * Never modified after construction
+		 */
+		private final BitSet expanded;
+		private final int lastExpandedPosition;
+		/**
+		 * The expanded positions, least recently expanded first.
+		 * Never modified after construction
+		 */
+		private final int[] order;
+
+		Snapshot(BitSet expanded, int lastExpandedPosition, int[] order) {
+			this.expanded = expanded;
+			this.lastExpandedPosition = lastExpandedPosition;
+			this.order = order;
+		}
+
+		public boolean isExpanded(int position) {
+			return position >= 0 && expanded.get(position);
+		}
+
+		/**
+		 * @return the position that was expanded last, or -1 if
+		 *  it has been collapsed since
+		 */
+		public int getLastExpandedPosition() {
+			return lastExpandedPosition;
+		}
+
+		public boolean isAnyExpanded() {
+			return !expanded.isEmpty();
+		}
+
+		public int getExpandedCount() {
+			return expanded.cardinality();
+		}
+
+		/**
+		 * @return the expanded positions, in ascending order
+		 */
+		public int[] getExpandedPositions() {
+			return ExpansionStateCodec.encode(expanded);
+		}
+
+		/**
+		 * @return the expanded positions, least recently expanded first
+		 */
+		public int[] getExpansionOrder() {
+			return order.clone();
+		}
+
+		/**
+		 * @return a copy of the expanded positions
+		 */
+		public BitSet toBitSet() {
+			return (BitSet) expanded.clone();
+		}
+
+		boolean hasSameState(Snapshot other) {
+			return lastExpandedPosition == other.lastExpandedPosition
+					&& expanded.equals(other.expanded)
+					&& Arrays.equals(order, other.order);
+		}
+	}
+
+	/**
+	 * A change posted from any thread
+	 */
+	private static final class Change {
+		static final int COLLAPSE_ALL = -1;
+
+		final int position;
+		final boolean expand;
+
+		Change(int position, boolean expand) {
+			this.position = position;
+			this.expand = expand;
+		}
+	}
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(Snapshot.EMPTY);
+	private final ConcurrentLinkedQueue<Change> pending = new ConcurrentLinkedQueue<Change>();
+	private final AtomicBoolean flushPosted = new AtomicBoolean(false);
+	private final CopyOnWriteArrayList<OnExpansionChangedListener> listeners =
+			new CopyOnWriteArrayList<OnExpansionChangedListener>();
+	private final Executor uiExecutor;
+	private volatile boolean multipleExpansion = false;
+	private volatile int maxExpanded = 0;
+
+	private final Runnable flush = new Runnable() {
+		@Override
+		public void run() {
+			flushPosted.set(false);
+			flushPending();
+		}
+	};
+
+	/**
+	 * Applies the posted changes and notifies the listeners.
+	 * Only call this from the UI thread.
+	 */
+	private void flushPending() {
+		Snapshot previous = snapshot.get();
+		Snapshot current = previous;
+		Change change;
+		while((change = pending.poll()) != null) {
+			if(change.position == Change.COLLAPSE_ALL) {
+				current = Snapshot.EMPTY;
+			} else {
+				current = apply(current, change.position, change.expand);
+			}
+		}
+		if(current == previous || current.hasSameState(previous)) {
+			return;
+		}
+		snapshot.set(current);
+		for(OnExpansionChangedListener listener : listeners) {
+			listener.onExpansionChanged(previous, current);
+		}
+	}
+
+	/**
+	 * @param uiExecutor runs tasks on the UI thread, in order
+	 */
+	public ExpansionModel(Executor uiExecutor) {
+		if(uiExecutor == null) {
+			throw new IllegalArgumentException("Executor is null");
+		}
+		this.uiExecutor = uiExecutor;
+	}
+
+	/**
+	 * @return the current state, can be called from any thread
+	 */
+	public Snapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Same as getSnapshot().isExpanded(position)
+	 */
+	public boolean isExpanded(int position) {
+		return snapshot.get().isExpanded(position);
+	}
+
+	/**
+	 * By default only one item is expanded at a time, expanding an item
+	 * collapses the previous one. When set to true, any number of items
+	 * can be expanded.
+	 */
+	public void setMultipleExpansion(boolean multipleExpansion) {
+		this.multipleExpansion = multipleExpansion;
+	}
+
+	public boolean isMultipleExpansion() {
+		return multipleExpansion;
+	}
+
+	/**
+	 * Caps the number of items that are expanded at the same time in
+	 * multiple expansion mode. When an item is expanded while the cap
+	 * is reached, the item that was expanded least recently is collapsed
+	 * in the same change. Items that are already expanded are left alone
+	 * until the next expand.
+	 *
+	 * @param maxExpanded the cap, or 0 for no cap (the default)
+	 */
+	public void setMaxExpanded(int maxExpanded) {
+		if(maxExpanded < 0) {
+			throw new IllegalArgumentException("Max expanded is less than zero");
+		}
+		this.maxExpanded = maxExpanded;
+	}
+
+	public int getMaxExpanded() {
+		return maxExpanded;
+	}
+
+	public void addOnExpansionChangedListener(OnExpansionChangedListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeOnExpansionChangedListener(OnExpansionChangedListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Expands the item at the position, can be called from any thread.
+	 * The change is applied on the UI thread.
+	 */
+	public void expand(int position) {
+		setExpanded(position, true);
+	}
+
+	/**
+	 * Collapses the item at the position, can be called from any thread.
+	 * The change is applied on the UI thread.
+	 */
+	public void collapse(int position) {
+		setExpanded(position, false);
+	}
+
+	public void setExpanded(int position, boolean expanded) {
+		if(position < 0) {
+			throw new IllegalArgumentException("Position is less than zero");
+		}
+		post(new Change(position, expanded));
+	}
+
+	/**
+	 * Collapses all items, can be called from any thread.
+	 * The change is applied on the UI thread.
+	 */
+	public void collapseAll() {
+		post(new Change(Change.COLLAPSE_ALL, false));
+	}
+
+	private void post(Change change) {
+		pending.add(change);
+		if(flushPosted.compareAndSet(false, true)) {
+			uiExecutor.execute(flush);
+		}
+	}
+
+	/**
+	 * Sets the expanded state of the position at once, without notifying
+	 * the listeners. Only call this from the UI thread.
+	 *
+	 * @return the snapshot before the change
+	 */
+	public Snapshot applyExpanded(int position, boolean expand) {
+		Snapshot previous = snapshot.get();
+		snapshot.set(apply(previous, position, expand));
+		return previous;
+	}
+
+	/**
+	 * @return the state after the change, or the same snapshot if
+	 *  nothing changed
+	 */
+	private Snapshot apply(Snapshot previous, int position, boolean expand) {
+		if(!expand) {
+			if(!previous.isExpanded(position)) {
+				return previous;
+			}
+			BitSet expanded = previous.toBitSet();
+			expanded.clear(position);
+			int last = previous.lastExpandedPosition;
+			return new Snapshot(expanded, last == position ? -1 : last, without(previous.order, position));
+		}
+		if(!multipleExpansion) {
+			BitSet expanded = new BitSet();
+			expanded.set(position);
+			return new Snapshot(expanded, position, new int[] { position });
+		}
+		BitSet expanded = previous.toBitSet();
+		expanded.set(position);
+		int[] order = append(without(previous.order, position), position);
+		int cap = maxExpanded;
+		if(cap > 0 && order.length > cap) {
+			// collapse the least recently expanded items, the new one is last
+			int evicted = order.length - cap;
+			for(int i = 0; i < evicted; i++) {
+				expanded.clear(order[i]);
+			}
+			int[] kept = new int[cap];
+			System.arraycopy(order, evicted, kept, 0, cap);
+			order = kept;
+		}
+		return new Snapshot(expanded, position, order);
+	}
+
+	/**
+	 * Replaces the state, for example when restoring a saved state.
+	 * The expansion order is not saved, so the positions are taken as
+	 * expanded in ascending order, with lastExpandedPosition as the most
+	 * recent one. Only call this from the UI thread.
+	 */
+	public void restore(BitSet expanded, int lastExpandedPosition) {
+		int[] order = ExpansionStateCodec.encode(expanded);
+		if(lastExpandedPosition >= 0 && expanded.get(lastExpandedPosition)) {
+			order = append(without(order, lastExpandedPosition), lastExpandedPosition);
+		}
+		snapshot.set(new Snapshot((BitSet) expanded.clone(), lastExpandedPosition, order));
+	}
+
+	/**
+	 * Moves the expanded positions after positionStart along, for itemCount
+	 * inserted items. Only call this from the UI thread.
+	 */
+	public void insertRange(int positionStart, int itemCount) {
+		flushPending();
+		Snapshot previous = snapshot.get();
+		BitSet expanded = previous.toBitSet();
+		shiftBits(expanded, positionStart, Math.max(positionStart, expanded.length()), itemCount);
+		int last = previous.lastExpandedPosition;
+		if(last >= positionStart) {
+			last += itemCount;
+		}
+		int[] order = previous.order.clone();
+		for(int i = 0; i < order.length; i++) {
+			if(order[i] >= positionStart) {
+				order[i] += itemCount;
+			}
+		}
+		snapshot.set(new Snapshot(expanded, last, order));
+	}
+
+	/**
+	 * Drops the expanded state of the removed items, and moves the
+	 * expanded positions after them along. Only call this from the UI thread.
+	 */
+	public void removeRange(int positionStart, int itemCount) {
+		flushPending();
+		Snapshot previous = snapshot.get();
+		BitSet expanded = previous.toBitSet();
+		int positionEnd = positionStart + itemCount;
+		expanded.clear(positionStart, positionEnd);
+		shiftBits(expanded, positionEnd, Math.max(positionEnd, expanded.length()), -itemCount);
+		int last = previous.lastExpandedPosition;
+		if(last >= positionEnd) {
+			last -= itemCount;
+		} else if(last >= positionStart) {
+			last = -1;
+		}
+		int[] order = new int[previous.order.length];
+		int count = 0;
+		for(int position : previous.order) {
+			if(position >= positionEnd) {
+				order[count++] = position - itemCount;
+			} else if(position < positionStart) {
+				order[count++] = position;
+			}
+		}
+		snapshot.set(new Snapshot(expanded, last, trim(order, count)));
+	}
+
+	/**
+	 * Moves the expanded state of an item, and of the items between
+	 * the two positions. Only call this from the UI thread.
+	 */
+	public void move(int fromPosition, int toPosition) {
+		flushPending();
+		Snapshot previous = snapshot.get();
+		BitSet expanded = previous.toBitSet();
+		boolean open = expanded.get(fromPosition);
+		expanded.clear(fromPosition);
+		if(fromPosition < toPosition) {
+			shiftBits(expanded, fromPosition + 1, toPosition + 1, -1);
+		} else {
+			shiftBits(expanded, toPosition, fromPosition, 1);
+		}
+		expanded.set(toPosition, open);
+		int last = movedPosition(previous.lastExpandedPosition, fromPosition, toPosition);
+		int[] order = previous.order.clone();
+		for(int i = 0; i < order.length; i++) {
+			order[i] = movedPosition(order[i], fromPosition, toPosition);
+		}
+		snapshot.set(new Snapshot(expanded, last, order));
+	}
+
+	/**
+	 * @return where the item at position ends up after a move
+	 */
+	private static int movedPosition(int position, int fromPosition, int toPosition) {
+		if(position == fromPosition) {
+			return toPosition;
+		} else if(fromPosition < toPosition && position > fromPosition && position <= toPosition) {
+			return position - 1;
+		} else if(fromPosition > toPosition && position >= toPosition && position < fromPosition) {
+			return position + 1;
+		}
+		return position;
+	}
+
+	private static int[] without(int[] order, int position) {
+		int[] result = new int[order.length];
+		int count = 0;
+		for(int p : order) {
+			if(p != position) {
+				result[count++] = p;
+			}
+		}
+		return trim(result, count);
+	}
+
+	private static int[] append(int[] order, int position) {
+		int[] result = new int[order.length + 1];
+		System.arraycopy(order, 0, result, 0, order.length);
+		result[order.length] = position;
+		return result;
+	}
+
+	private static int[] trim(int[] order, int count) {
+		if(count == order.length) {
+			return order;
+		}
+		int[] result = new int[count];
+		System.arraycopy(order, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Moves the bits in [from, to) by delta, the bits they leave are cleared.
+	 * Runs in time proportional to the range.
+	 */
+	private static void shiftBits(BitSet set, int from, int to, int delta) {
+		if(from >= to) {
+			return;
+		}
+		BitSet moved = set.get(from, to);
+		set.clear(from, to);
+		for(int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+			set.set(from + i + delta);
+		}
+	}
+}
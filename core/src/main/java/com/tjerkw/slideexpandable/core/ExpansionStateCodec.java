@@ -0,0 +1,52 @@
+package com.tjerkw.slideexpandable.core;
+
+import java.util.BitSet;
+
+/**
+ * Converts the expanded positions to and from an int array, which
+ * the library writes to a Parcel to save the state of the list.
+ *
+ * The array holds the expanded positions in ascending order. Written with
+ * Parcel.writeIntArray this is the count followed by the positions, the
+ * same format as earlier versions wrote.
+ */
+public final class ExpansionStateCodec {
+
+	private ExpansionStateCodec() {
+	}
+
+	/**
+	 * @param set the expanded positions, may be null
+	 * @return the positions, never null
+	 */
+	public static int[] encode(BitSet set) {
+		if(set == null) {
+			return new int[0];
+		}
+		int[] positions = new int[set.cardinality()];
+		int i = 0;
+		for(int position = set.nextSetBit(0); position >= 0; position = set.nextSetBit(position + 1)) {
+			positions[i++] = position;
+		}
+		return positions;
+	}
+
+	/**
+	 * @param positions the positions, may be null
+	 * @return the expanded positions, never null
+	 * @exception IllegalArgumentException if a position is less than zero
+	 */
+	public static BitSet decode(int[] positions) {
+		BitSet set = new BitSet();
+		if(positions == null) {
+			return set;
+		}
+		for(int position : positions) {
+			if(position < 0) {
+				throw new IllegalArgumentException("Position is less than zero: " + position);
+			}
+			set.set(position);
+		}
+		return set;
+	}
+}
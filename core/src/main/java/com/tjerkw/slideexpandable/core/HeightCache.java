@@ -0,0 +1,175 @@
+package com.tjerkw.slideexpandable.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the measured heights of expandable views.
+ * When full, the least recently used height is dropped.
+ *
+ * Heights are keyed by the view type of the list item, the width
+ * available to its expandable view and an optional content key given
+ * by the app. Since no positions are used, one cache can be shared by
+ * several adapters that show the same item layout, for example on tabs.
+ *
+ * Like the adapters themselves, it should only be used on the UI thread.
+ * In the library it is set with
+ * AbstractSlideExpandableListAdapter.setHeightCache(HeightCache).
+ */
+public class HeightCache {
+	public static final int DEFAULT_CAPACITY = 32;
+
+	private final LinkedHashMap<Key, Integer> heights;
+	private int capacity;
+	/**
+	 * Reused for lookups, so a get does not allocate
+	 */
+	private final Key lookupKey = new Key();
+
+	private int hitCount = 0;
+	private int missCount = 0;
+	private int evictionCount = 0;
+
+	public HeightCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the maximum number of heights kept (capacity > 0)
+	 * @exception IllegalArgumentException if capacity is less than one
+	 */
+	public HeightCache(int capacity) {
+		checkCapacity(capacity);
+		this.capacity = capacity;
+		this.heights = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+				if(size() > HeightCache.this.capacity) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	private static void checkCapacity(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("Capacity is less than one");
+		}
+	}
+
+	/**
+	 * @param viewType the view type of the list item
+	 * @param width the width available to the expandable view
+	 * @param contentKey identifies the content of the expandable view, may be null
+	 * @return the height, or -1 if it is not cached
+	 */
+	public int get(int viewType, int width, Object contentKey) {
+		lookupKey.set(viewType, width, contentKey);
+		Integer height = heights.get(lookupKey);
+		lookupKey.contentKey = null;
+		if(height == null) {
+			missCount++;
+			return -1;
+		}
+		hitCount++;
+		return height;
+	}
+
+	public void put(int viewType, int width, Object contentKey, int height) {
+		Key key = new Key();
+		key.set(viewType, width, contentKey);
+		heights.put(key, height);
+	}
+
+	public void remove(int viewType, int width, Object contentKey) {
+		lookupKey.set(viewType, width, contentKey);
+		heights.remove(lookupKey);
+		lookupKey.contentKey = null;
+	}
+
+	/**
+	 * Drops all heights, the statistics are kept.
+	 */
+	public void clear() {
+		heights.clear();
+	}
+
+	/**
+	 * Changes the capacity, dropping the least recently used
+	 * heights if there are more than the new capacity.
+	 *
+	 * @param capacity the maximum number of heights kept (capacity > 0)
+	 * @exception IllegalArgumentException if capacity is less than one
+	 */
+	public void setCapacity(int capacity) {
+		checkCapacity(capacity);
+		this.capacity = capacity;
+		while(heights.size() > capacity) {
+			heights.remove(heights.keySet().iterator().next());
+			evictionCount++;
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int size() {
+		return heights.size();
+	}
+
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	public int getMissCount() {
+		return missCount;
+	}
+
+	public int getEvictionCount() {
+		return evictionCount;
+	}
+
+	public void resetStatistics() {
+		hitCount = 0;
+		missCount = 0;
+		evictionCount = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "HeightCache[size=" + heights.size() + "/" + capacity
+				+ ", hits=" + hitCount + ", misses=" + missCount
+				+ ", evictions=" + evictionCount + "]";
+	}
+
+	private static final class Key {
+		int viewType;
+		int width;
+		Object contentKey;
+
+		void set(int viewType, int width, Object contentKey) {
+			this.viewType = viewType;
+			this.width = width;
+			this.contentKey = contentKey;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return viewType == other.viewType && width == other.width
+					&& (contentKey == null ? other.contentKey == null : contentKey.equals(other.contentKey));
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 31 * viewType + width;
+			return 31 * hash + (contentKey == null ? 0 : contentKey.hashCode());
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package com.tjerkw.slideexpandable.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+
+/**
+ * Runs random sequences of changes on an ExpansionModel and on a naive
+ * model that keeps the expanded positions in a list, and checks after
+ * each change that both agree.
+ *
+ * The number of sequences can be set with the system property
+ * expansionModel.sequences, the seed with expansionModel.seed.
+ */
+public class ExpansionModelRandomTest {
+	private static final int SEQUENCES = Integer.getInteger("expansionModel.sequences", 200000);
+	private static final long SEED = Long.getLong("expansionModel.seed", 20121013L);
+	private static final int MAX_OPERATIONS = 30;
+	private static final int POSITIONS = 24;
+
+	/**
+	 * The reference: the expanded positions, least recently expanded first.
+	 */
+	private static class NaiveModel {
+		final List<Integer> order = new ArrayList<Integer>();
+		int last = -1;
+		boolean multipleExpansion;
+		int maxExpanded;
+
+		void setExpanded(int position, boolean expand) {
+			if(!expand) {
+				if(order.remove(Integer.valueOf(position)) && last == position) {
+					last = -1;
+				}
+				return;
+			}
+			if(!multipleExpansion) {
+				order.clear();
+			}
+			order.remove(Integer.valueOf(position));
+			order.add(position);
+			while(multipleExpansion && maxExpanded > 0 && order.size() > maxExpanded) {
+				order.remove(0);
+			}
+			last = position;
+		}
+
+		void collapseAll() {
+			order.clear();
+			last = -1;
+		}
+
+		void insertRange(int start, int count) {
+			for(int i = 0; i < order.size(); i++) {
+				if(order.get(i) >= start) {
+					order.set(i, order.get(i) + count);
+				}
+			}
+			if(last >= start) {
+				last += count;
+			}
+		}
+
+		void removeRange(int start, int count) {
+			List<Integer> kept = new ArrayList<Integer>();
+			for(int position : order) {
+				if(position < start) {
+					kept.add(position);
+				} else if(position >= start + count) {
+					kept.add(position - count);
+				}
+			}
+			order.clear();
+			order.addAll(kept);
+			if(last >= start + count) {
+				last -= count;
+			} else if(last >= start) {
+				last = -1;
+			}
+		}
+
+		void move(int from, int to) {
+			for(int i = 0; i < order.size(); i++) {
+				order.set(i, moved(order.get(i), from, to));
+			}
+			last = moved(last, from, to);
+		}
+
+		private static int moved(int position, int from, int to) {
+			if(position == from) {
+				return to;
+			} else if(from < to && position > from && position <= to) {
+				return position - 1;
+			} else if(from > to && position >= to && position < from) {
+				return position + 1;
+			}
+			return position;
+		}
+
+		void restore(List<Integer> positions, int lastExpanded) {
+			order.clear();
+			order.addAll(new TreeSet<Integer>(positions));
+			if(order.remove(Integer.valueOf(lastExpanded))) {
+				order.add(lastExpanded);
+			}
+			last = lastExpanded;
+		}
+
+		int[] sortedPositions() {
+			List<Integer> sorted = new ArrayList<Integer>(order);
+			Collections.sort(sorted);
+			return toArray(sorted);
+		}
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for(int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	@Test
+	public void agreesWithNaiveModel() {
+		Random random = new Random(SEED);
+		for(int sequence = 0; sequence < SEQUENCES; sequence++) {
+			runSequence(random, sequence);
+		}
+	}
+
+	private static void runSequence(Random random, int sequence) {
+		final QueueExecutor executor = new QueueExecutor();
+		final ExpansionModel model = new ExpansionModel(executor);
+		final NaiveModel naive = new NaiveModel();
+		final NaiveModel posted = new NaiveModel();
+		final int[] notifications = new int[1];
+		model.addOnExpansionChangedListener(new ExpansionModel.OnExpansionChangedListener() {
+			@Override
+			public void onExpansionChanged(ExpansionModel.Snapshot previous, ExpansionModel.Snapshot current) {
+				notifications[0]++;
+			}
+		});
+		boolean multiple = random.nextBoolean();
+		int max = random.nextInt(4);
+		model.setMultipleExpansion(multiple);
+		model.setMaxExpanded(max);
+		naive.multipleExpansion = multiple;
+		naive.maxExpanded = max;
+
+		StringBuilder history = new StringBuilder("sequence " + sequence + ", multiple " + multiple + ", max " + max + ":");
+		boolean pending = false;
+		for(int i = random.nextInt(MAX_OPERATIONS) + 1; i > 0; i--) {
+			int position = random.nextInt(POSITIONS);
+			int operation = random.nextInt(10);
+			boolean rangeChange = operation == 7 || operation == 8;
+			int notificationsBefore = notifications[0];
+			boolean changedByFlush = false;
+			if(pending && rangeChange) {
+				// the model applies the posted changes itself, before the range change
+				pending = false;
+				history.append(" flush");
+				changedByFlush = !sameState(naive, posted);
+				copy(posted, naive);
+			} else if(pending && operation >= 5) {
+				// posted changes must be applied before the UI thread applies its own
+				pending = false;
+				flush(executor, model, naive, posted, notifications, history);
+			}
+			switch(operation) {
+				case 0:
+				case 1:
+					boolean expand = random.nextInt(3) > 0;
+					history.append(" post(").append(position).append(", ").append(expand).append(")");
+					copy(pending ? posted : naive, posted);
+					model.setExpanded(position, expand);
+					posted.setExpanded(position, expand);
+					pending = true;
+					break;
+				case 2:
+					history.append(" postCollapseAll");
+					copy(pending ? posted : naive, posted);
+					model.collapseAll();
+					posted.collapseAll();
+					pending = true;
+					break;
+				case 3:
+				case 4:
+					// flushed at the next UI thread operation
+					history.append(" wait");
+					break;
+				case 5:
+				case 6:
+					expand = random.nextInt(3) > 0;
+					history.append(" apply(").append(position).append(", ").append(expand).append(")");
+					model.applyExpanded(position, expand);
+					naive.setExpanded(position, expand);
+					break;
+				case 7:
+					int count = random.nextInt(4);
+					if(random.nextBoolean()) {
+						history.append(" insert(").append(position).append(", ").append(count).append(")");
+						model.insertRange(position, count);
+						naive.insertRange(position, count);
+					} else {
+						history.append(" remove(").append(position).append(", ").append(count).append(")");
+						model.removeRange(position, count);
+						naive.removeRange(position, count);
+					}
+					break;
+				case 8:
+					int to = random.nextInt(POSITIONS);
+					history.append(" move(").append(position).append(", ").append(to).append(")");
+					model.move(position, to);
+					naive.move(position, to);
+					break;
+				default:
+					if(random.nextInt(4) > 0) {
+						max = random.nextInt(4);
+						history.append(" max(").append(max).append(")");
+						model.setMaxExpanded(max);
+						naive.maxExpanded = max;
+						posted.maxExpanded = max;
+					} else {
+						List<Integer> positions = new ArrayList<Integer>();
+						for(int j = random.nextInt(4); j > 0; j--) {
+							positions.add(random.nextInt(POSITIONS));
+						}
+						int last = positions.isEmpty() || random.nextInt(4) == 0 ? -1 : positions.get(0);
+						history.append(" restore(").append(positions).append(", ").append(last).append(")");
+						BitSet set = new BitSet();
+						for(int p : positions) {
+							set.set(p);
+						}
+						model.restore(set, last);
+						naive.restore(positions, last);
+					}
+					break;
+			}
+			if(rangeChange) {
+				assertEquals(history.toString(), changedByFlush ? notificationsBefore + 1 : notificationsBefore,
+						notifications[0]);
+			}
+			if(!pending) {
+				assertSameState(history.toString(), naive, model.getSnapshot());
+			}
+		}
+		if(pending) {
+			flush(executor, model, naive, posted, notifications, history);
+		}
+	}
+
+	/**
+	 * Runs the posted changes, checks that they gave the state of the
+	 * naive model and that the listener was only notified of a change.
+	 * A range change applies the posted changes without running the
+	 * posted flush, so the executor can hold flushes that have no work.
+	 */
+	private static void flush(QueueExecutor executor, ExpansionModel model, NaiveModel naive,
+			NaiveModel posted, int[] notifications, StringBuilder history) {
+		history.append(" flush");
+		int before = notifications[0];
+		boolean changed = !sameState(naive, posted);
+		assertTrue(history.toString(), executor.size() >= 1);
+		executor.runAll();
+		copy(posted, naive);
+		assertSameState(history.toString(), naive, model.getSnapshot());
+		assertEquals(history.toString(), changed ? before + 1 : before, notifications[0]);
+	}
+
+	private static boolean sameState(NaiveModel a, NaiveModel b) {
+		return a.last == b.last && a.order.equals(b.order);
+	}
+
+	private static void copy(NaiveModel from, NaiveModel to) {
+		if(from == to) {
+			return;
+		}
+		to.order.clear();
+		to.order.addAll(from.order);
+		to.last = from.last;
+		to.multipleExpansion = from.multipleExpansion;
+		to.maxExpanded = from.maxExpanded;
+	}
+
+	private static void assertSameState(String history, NaiveModel naive, ExpansionModel.Snapshot snapshot) {
+		assertArrayEquals(history, naive.sortedPositions(), snapshot.getExpandedPositions());
+		assertArrayEquals(history, toArray(naive.order), snapshot.getExpansionOrder());
+		assertEquals(history, naive.last, snapshot.getLastExpandedPosition());
+		assertEquals(history, naive.order.size(), snapshot.getExpandedCount());
+		assertEquals(history, !naive.order.isEmpty(), snapshot.isAnyExpanded());
+		// inserts can move items past POSITIONS
+		for(int position = 0; position < POSITIONS + MAX_OPERATIONS * 3; position++) {
+			assertTrue(history, naive.order.contains(position) == snapshot.isExpanded(position));
+		}
+	}
+}
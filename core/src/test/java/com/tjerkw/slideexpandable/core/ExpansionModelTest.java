@@ -0,0 +1,312 @@
+package com.tjerkw.slideexpandable.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpansionModelTest {
+	private QueueExecutor executor;
+	private ExpansionModel model;
+	private final List<ExpansionModel.Snapshot[]> changes = new ArrayList<ExpansionModel.Snapshot[]>();
+
+	@Before
+	public void setUp() {
+		executor = new QueueExecutor();
+		model = new ExpansionModel(executor);
+		model.addOnExpansionChangedListener(new ExpansionModel.OnExpansionChangedListener() {
+			@Override
+			public void onExpansionChanged(ExpansionModel.Snapshot previous, ExpansionModel.Snapshot current) {
+				changes.add(new ExpansionModel.Snapshot[] { previous, current });
+			}
+		});
+	}
+
+	private static void assertExpanded(ExpansionModel.Snapshot snapshot, int... positions) {
+		assertArrayEquals(positions, snapshot.getExpandedPositions());
+		assertEquals(positions.length, snapshot.getExpandedCount());
+		assertEquals(positions.length > 0, snapshot.isAnyExpanded());
+	}
+
+	private void assertExpanded(int... positions) {
+		assertExpanded(model.getSnapshot(), positions);
+	}
+
+	private void assertOrder(int... positions) {
+		assertArrayEquals(positions, model.getSnapshot().getExpansionOrder());
+	}
+
+	@Test
+	public void startsCollapsed() {
+		assertExpanded();
+		assertEquals(-1, model.getSnapshot().getLastExpandedPosition());
+		assertFalse(model.isExpanded(0));
+		assertFalse(model.isExpanded(-1));
+	}
+
+	@Test
+	public void singleExpansionCollapsesThePreviousItem() {
+		model.applyExpanded(2, true);
+		ExpansionModel.Snapshot previous = model.applyExpanded(5, true);
+
+		assertExpanded(previous, 2);
+		assertExpanded(5);
+		assertEquals(5, model.getSnapshot().getLastExpandedPosition());
+	}
+
+	@Test
+	public void multipleExpansionKeepsThePreviousItems() {
+		model.setMultipleExpansion(true);
+		model.applyExpanded(5, true);
+		model.applyExpanded(2, true);
+
+		assertExpanded(2, 5);
+		assertOrder(5, 2);
+		assertEquals(2, model.getSnapshot().getLastExpandedPosition());
+	}
+
+	@Test
+	public void collapsingTheLastExpandedItemClearsIt() {
+		model.setMultipleExpansion(true);
+		model.applyExpanded(1, true);
+		model.applyExpanded(3, true);
+		model.applyExpanded(3, false);
+
+		assertExpanded(1);
+		assertEquals(-1, model.getSnapshot().getLastExpandedPosition());
+	}
+
+	@Test
+	public void collapsingACollapsedItemKeepsTheSnapshot() {
+		model.applyExpanded(1, true);
+		ExpansionModel.Snapshot snapshot = model.getSnapshot();
+		model.applyExpanded(4, false);
+		assertSame(snapshot, model.getSnapshot());
+	}
+
+	@Test
+	public void capCollapsesTheLeastRecentlyExpandedItems() {
+		model.setMultipleExpansion(true);
+		model.setMaxExpanded(2);
+		model.applyExpanded(1, true);
+		model.applyExpanded(2, true);
+		ExpansionModel.Snapshot previous = model.applyExpanded(3, true);
+
+		assertExpanded(previous, 1, 2);
+		assertExpanded(2, 3);
+		assertOrder(2, 3);
+		assertEquals(3, model.getSnapshot().getLastExpandedPosition());
+	}
+
+	@Test
+	public void expandingAgainMakesAnItemMostRecent() {
+		model.setMultipleExpansion(true);
+		model.setMaxExpanded(2);
+		model.applyExpanded(1, true);
+		model.applyExpanded(2, true);
+		model.applyExpanded(1, true);
+		model.applyExpanded(3, true);
+
+		assertExpanded(1, 3);
+		assertOrder(1, 3);
+	}
+
+	@Test
+	public void loweringTheCapTakesEffectOnTheNextExpand() {
+		model.setMultipleExpansion(true);
+		for(int i = 0; i < 4; i++) {
+			model.applyExpanded(i, true);
+		}
+		model.setMaxExpanded(2);
+		assertExpanded(0, 1, 2, 3);
+
+		model.applyExpanded(7, true);
+		assertExpanded(3, 7);
+	}
+
+	@Test
+	public void capIsIgnoredInSingleExpansionMode() {
+		model.setMaxExpanded(3);
+		model.applyExpanded(1, true);
+		model.applyExpanded(2, true);
+		assertExpanded(2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeCap() {
+		model.setMaxExpanded(-1);
+	}
+
+	@Test
+	public void insertRangeMovesLaterItems() {
+		model.setMultipleExpansion(true);
+		model.applyExpanded(8, true);
+		model.applyExpanded(1, true);
+		model.applyExpanded(4, true);
+		model.insertRange(4, 3);
+
+		assertExpanded(1, 7, 11);
+		assertOrder(11, 1, 7);
+		assertEquals(7, model.getSnapshot().getLastExpandedPosition());
+	}
+
+	@Test
+	public void removeRangeDropsRemovedItems() {
+		model.setMultipleExpansion(true);
+		model.applyExpanded(9, true);
+		model.applyExpanded(1, true);
+		model.applyExpanded(4, true);
+		model.removeRange(3, 2);
+
+		assertExpanded(1, 7);
+		assertOrder(7, 1);
+		assertEquals(-1, model.getSnapshot().getLastExpandedPosition());
+	}
+
+	@Test
+	public void removeRangeMovesTheLastExpandedItem() {
+		model.applyExpanded(9, true);
+		model.removeRange(0, 4);
+
+		assertExpanded(5);
+		assertEquals(5, model.getSnapshot().getLastExpandedPosition());
+	}
+
+	@Test
+	public void moveDownShiftsItemsBetween() {
+		model.setMultipleExpansion(true);
+		model.applyExpanded(2, true);
+		model.applyExpanded(4, true);
+		model.applyExpanded(7, true);
+		model.move(2, 5);
+
+		assertExpanded(3, 5, 7);
+		assertOrder(5, 3, 7);
+		assertEquals(7, model.getSnapshot().getLastExpandedPosition());
+	}
+
+	@Test
+	public void moveUpShiftsItemsBetween() {
+		model.setMultipleExpansion(true);
+		model.applyExpanded(1, true);
+		model.applyExpanded(6, true);
+		model.move(6, 0);
+
+		assertExpanded(0, 2);
+		assertOrder(2, 0);
+		assertEquals(0, model.getSnapshot().getLastExpandedPosition());
+	}
+
+	@Test
+	public void restoreOrdersByPositionWithTheLastExpandedMostRecent() {
+		BitSet expanded = ExpansionStateCodec.decode(new int[] { 1, 4, 7 });
+		model.restore(expanded, 4);
+		// the model keeps its own copy
+		expanded.clear();
+
+		assertExpanded(1, 4, 7);
+		assertOrder(1, 7, 4);
+		assertEquals(4, model.getSnapshot().getLastExpandedPosition());
+
+		model.setMultipleExpansion(true);
+		model.setMaxExpanded(3);
+		model.applyExpanded(9, true);
+		assertExpanded(4, 7, 9);
+	}
+
+	@Test
+	public void postedChangesAreAppliedInOneBatch() {
+		model.setMultipleExpansion(true);
+		model.expand(1);
+		model.expand(2);
+		model.collapse(1);
+		model.setExpanded(6, true);
+
+		assertEquals(1, executor.size());
+		assertExpanded();
+		executor.runAll();
+
+		assertExpanded(2, 6);
+		assertEquals(1, changes.size());
+		assertExpanded(changes.get(0)[0]);
+		assertSame(model.getSnapshot(), changes.get(0)[1]);
+	}
+
+	@Test
+	public void collapseAllIsBatched() {
+		model.setMultipleExpansion(true);
+		model.applyExpanded(1, true);
+		model.applyExpanded(2, true);
+		model.collapseAll();
+		model.expand(5);
+		executor.runAll();
+
+		assertExpanded(5);
+		assertEquals(1, changes.size());
+		assertExpanded(changes.get(0)[0], 1, 2);
+	}
+
+	@Test
+	public void batchThatChangesNothingIsNotReported() {
+		model.applyExpanded(3, true);
+		model.expand(1);
+		model.collapse(1);
+		model.expand(3);
+		executor.runAll();
+
+		assertExpanded(3);
+		assertTrue(changes.isEmpty());
+	}
+
+	@Test
+	public void postedChangesAreAppliedBeforeARangeChange() {
+		model.setMultipleExpansion(true);
+		model.expand(2);
+		model.expand(5);
+		model.insertRange(0, 3);
+
+		// the posts before the insert were for the items now at 5 and 8
+		assertExpanded(5, 8);
+		assertEquals(1, changes.size());
+		assertExpanded(changes.get(0)[1], 2, 5);
+
+		model.expand(0);
+		executor.runAll();
+		assertExpanded(0, 5, 8);
+
+		model.collapse(5);
+		model.removeRange(0, 1);
+		model.expand(0);
+		model.move(0, 3);
+		executor.runAll();
+
+		assertExpanded(3, 7);
+		assertEquals(4, changes.size());
+	}
+
+	@Test
+	public void applyingAtOnceDoesNotNotify() {
+		model.applyExpanded(3, true);
+		model.insertRange(0, 1);
+		model.move(4, 0);
+		executor.runAll();
+		assertTrue(changes.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativePosition() {
+		model.expand(-1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNullExecutor() {
+		new ExpansionModel(null);
+	}
+}
@@ -0,0 +1,57 @@
+package com.tjerkw.slideexpandable.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.Test;
+
+public class ExpansionStateCodecTest {
+
+	@Test
+	public void encodesPositionsInAscendingOrder() {
+		BitSet set = new BitSet();
+		set.set(9);
+		set.set(0);
+		set.set(70);
+		assertArrayEquals(new int[] { 0, 9, 70 }, ExpansionStateCodec.encode(set));
+	}
+
+	@Test
+	public void encodesNullAsEmpty() {
+		assertEquals(0, ExpansionStateCodec.encode(null).length);
+	}
+
+	@Test
+	public void decodesNullAsEmpty() {
+		assertTrue(ExpansionStateCodec.decode(null).isEmpty());
+	}
+
+	@Test
+	public void decodesUnsortedAndDuplicatePositions() {
+		BitSet set = ExpansionStateCodec.decode(new int[] { 5, 1, 5 });
+		assertEquals(2, set.cardinality());
+		assertTrue(set.get(1));
+		assertTrue(set.get(5));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativePositions() {
+		ExpansionStateCodec.decode(new int[] { 1, -1 });
+	}
+
+	@Test
+	public void roundTripsRandomSets() {
+		Random random = new Random(42);
+		for(int i = 0; i < 10000; i++) {
+			BitSet set = new BitSet();
+			int size = random.nextInt(200);
+			for(int j = random.nextInt(20); j > 0; j--) {
+				set.set(random.nextInt(size + 1));
+			}
+			assertEquals(set, ExpansionStateCodec.decode(ExpansionStateCodec.encode(set)));
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.tjerkw.slideexpandable.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HeightCacheTest {
+
+	@Test
+	public void returnsMinusOneOnMiss() {
+		HeightCache cache = new HeightCache();
+		assertEquals(-1, cache.get(0, 480, null));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void keysOnViewTypeWidthAndContentKey() {
+		HeightCache cache = new HeightCache();
+		cache.put(0, 480, null, 100);
+		cache.put(1, 480, null, 110);
+		cache.put(0, 720, null, 120);
+		cache.put(0, 480, "long", 130);
+		cache.put(0, 480, new String("long"), 140);
+
+		assertEquals(100, cache.get(0, 480, null));
+		assertEquals(110, cache.get(1, 480, null));
+		assertEquals(120, cache.get(0, 720, null));
+		// content keys are compared with equals
+		assertEquals(140, cache.get(0, 480, "long"));
+		assertEquals(4, cache.size());
+	}
+
+	@Test
+	public void removesOneHeight() {
+		HeightCache cache = new HeightCache();
+		cache.put(0, 480, "a", 100);
+		cache.put(0, 480, "b", 200);
+		cache.remove(0, 480, "a");
+		assertEquals(-1, cache.get(0, 480, "a"));
+		assertEquals(200, cache.get(0, 480, "b"));
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		HeightCache cache = new HeightCache(2);
+		cache.put(0, 480, "a", 1);
+		cache.put(0, 480, "b", 2);
+		// a is now more recently used than b
+		cache.get(0, 480, "a");
+		cache.put(0, 480, "c", 3);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(-1, cache.get(0, 480, "b"));
+		assertEquals(1, cache.get(0, 480, "a"));
+		assertEquals(3, cache.get(0, 480, "c"));
+	}
+
+	@Test
+	public void shrinkingDropsLeastRecentlyUsed() {
+		HeightCache cache = new HeightCache(4);
+		for(int i = 0; i < 4; i++) {
+			cache.put(i, 480, null, i);
+		}
+		cache.get(0, 480, null);
+		cache.setCapacity(2);
+
+		assertEquals(2, cache.getCapacity());
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getEvictionCount());
+		assertEquals(0, cache.get(0, 480, null));
+		assertEquals(3, cache.get(3, 480, null));
+	}
+
+	@Test
+	public void countsHitsAndMisses() {
+		HeightCache cache = new HeightCache();
+		cache.put(0, 480, null, 100);
+		cache.get(0, 480, null);
+		cache.get(0, 480, null);
+		cache.get(1, 480, null);
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		cache.resetStatistics();
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+		assertEquals(0, cache.getEvictionCount());
+		// clearing drops the heights, but not the statistics
+		cache.get(0, 480, null);
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsCapacityBelowOne() {
+		new HeightCache(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsSettingCapacityBelowOne() {
+		new HeightCache().setCapacity(0);
+	}
+}
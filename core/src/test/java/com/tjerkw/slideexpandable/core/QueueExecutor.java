@@ -0,0 +1,28 @@
+package com.tjerkw.slideexpandable.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Stands in for the UI thread in tests: tasks are queued
+ * until runAll is called.
+ */
+class QueueExecutor implements Executor {
+	private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+	@Override
+	public void execute(Runnable runnable) {
+		tasks.add(runnable);
+	}
+
+	int size() {
+		return tasks.size();
+	}
+
+	void runAll() {
+		while(!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+	}
+}
@@ -1,17 +1,28 @@
 package com.tjerkw.slideexpandable.library;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.List;
+import android.annotation.TargetApi;
+import android.database.DataSetObserver;
 import android.graphics.Rect;
+import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.util.SparseIntArray;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.View.MeasureSpec;
 import android.view.ViewGroup;
 import android.view.animation.Animation;
 import android.view.animation.Animation.AnimationListener;
+import android.widget.AbsListView.OnScrollListener;
 import android.widget.LinearLayout;
 import android.widget.ListAdapter;
 import android.widget.ListView;
+import com.tjerkw.slideexpandable.core.ExpansionModel;
+import com.tjerkw.slideexpandable.core.ExpansionStateCodec;
+import com.tjerkw.slideexpandable.core.HeightCache;
 
 /**
  * Wraps a ListAdapter to give it expandable list view functionality.
@@ -23,46 +34,138 @@ import android.widget.ListView;
  */
 public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdapterImpl {
 	/**
-	 * Reference to the last expanded list item.
-	 * Since lists are recycled this might be null if
-	 * though there is an expanded list item
+	 * Default Animation duration
+	 * Set animation duration with @see setAnimationDuration
 	 */
-	private View lastOpen = null;
+	private int animationDuration = 330;
+
 	/**
-	 * The position of the last expanded list item.
-	 * If -1 there is no list item expanded.
-	 * Otherwise it points to the position of the last expanded list item
+	 * If set, decides whether and how to animate, see setAdaptiveMotion
 	 */
-	private int lastOpenPosition = -1;
-	
+	private AdaptiveMotion adaptiveMotion = null;
+
 	/**
-	 * Default Animation duration
-	 * Set animation duration with @see setAnimationDuration
+	 * If true, expanded and collapsed items have different view types,
+	 * see setSeparateExpandedViewTypes
 	 */
-	private int animationDuration = 330;
+	private boolean separateExpandedViewTypes = false;
+	/**
+	 * The number of registered observers. While a list observes
+	 * this adapter, the view types can not change.
+	 */
+	private int observerCount = 0;
 	
 	/**
-	 * A list of positions of all list items that are expanded.
-	 * Normally only one is expanded. But a mode to expand
-	 * multiple will be added soon.
-	 *
-	 * If an item onj position x is open, its bit is set
+	 * Which list items are expanded. The adapter is a view of this model,
+	 * it can be read and changed from any thread.
 	 */
-	private BitSet openItems = new BitSet();
+	private final ExpansionModel expansionModel = new ExpansionModel(MainThreadExecutor.INSTANCE);
 	/**
-	 * We remember, for each collapsable view its height.
+	 * We remember the heights of the collapsable views.
 	 * So we dont need to recalculate.
-	 * The height is calculated just before the view is drawn.
+	 * The height is calculated just before the view is drawn,
+	 * the first time the content is bound.
 	 */
-	private final SparseIntArray viewHeights = new SparseIntArray(10);
+	private HeightCache heightCache = new HeightCache();
 
 	/**
-	* Will point to the ListView
-	*/
-	private ViewGroup parent;
+	 * The scroll state of the list, as given to setScrollState.
+	 * While flinging, items expand and collapse without animation
+	 * and binding pooled content is deferred until the list is idle.
+	 */
+	private int scrollState = OnScrollListener.SCROLL_STATE_IDLE;
+
+	/**
+	 * Delay between deferred binds, if postOnAnimation is not available
+	 */
+	private static final int FRAME_DELAY = 16;
+
+	/**
+	 * Will point to the ListView.
+	 * The adapter may outlive the ListView (for example when it is kept
+	 * across a configuration change), so no strong reference is kept.
+	 * Item views are not referenced at all, they are found through
+	 * the children of the ListView when needed.
+	 */
+	private WeakReference<ViewGroup> parent = new WeakReference<ViewGroup>(null);
+
+	/**
+	 * The bind decorators, run in order after the expansion logic
+	 * has bound a list item.
+	 */
+	private final List<RowBinder> rowBinders = new ArrayList<RowBinder>(2);
 
 	public AbstractSlideExpandableListAdapter(ListAdapter wrapped) {
 		super(wrapped);
+		expansionModel.addOnExpansionChangedListener(new ExpansionModel.OnExpansionChangedListener() {
+			@Override
+			public void onExpansionChanged(ExpansionModel.Snapshot previous, ExpansionModel.Snapshot current) {
+				applyChanges(previous, current);
+			}
+		});
+	}
+
+	/**
+	 * @return the model of which items are expanded, it can be read
+	 *  and changed from any thread
+	 */
+	public ExpansionModel getExpansionModel() {
+		return expansionModel;
+	}
+
+	/**
+	 * Adds a bind decorator which is run for each list item that is bound.
+	 * Decorators run in the order they are added, after the expandable
+	 * view has been updated.
+	 *
+	 * @param binder the decorator to add
+	 */
+	public void addRowBinder(RowBinder binder) {
+		if(binder == null) {
+			throw new IllegalArgumentException("RowBinder is null");
+		}
+		rowBinders.add(binder);
+	}
+
+	public void removeRowBinder(RowBinder binder) {
+		rowBinders.remove(binder);
+	}
+
+	/**
+	 * Sets the cache of the measured heights of the expandable views.
+	 * The same cache can be given to several adapters that show the same
+	 * list item layout, so they do not measure the same content again.
+	 *
+	 * @see #getContentKey(int)
+	 * @param cache the cache to use
+	 */
+	public void setHeightCache(HeightCache cache) {
+		if(cache == null) {
+			throw new IllegalArgumentException("HeightCache is null");
+		}
+		heightCache = cache;
+	}
+
+	public HeightCache getHeightCache() {
+		return heightCache;
+	}
+
+	/**
+	 * Returns a key for the content of the expandable view at the position.
+	 * Heights are cached by view type, the width the
+	 * expandable view gets in the list and this key.
+	 * <br/>
+	 * By default this returns null, so all expandable views of the same
+	 * view type are assumed to have the same height. That is true for the
+	 * usual area of action buttons. If the height depends on the data,
+	 * return something that identifies the content, for example the item
+	 * id, or the text shown.
+	 *
+	 * @param position the position in the list view
+	 * @return the key, or null
+	 */
+	protected Object getContentKey(int position) {
+		return null;
 	}
 
 	private OnItemExpandCollapseListener expandCollapseListener;
@@ -124,12 +227,89 @@ public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdap
 
 	@Override
 	public View getView(int position, View view, ViewGroup viewGroup) {
-		this.parent = viewGroup;
+		if(parent.get() != viewGroup) {
+			parent = new WeakReference<ViewGroup>(viewGroup);
+		}
 		view = wrapped.getView(position, view, viewGroup);
-		enableFor(view, position);
+		RowViewHolder holder = getRowViewHolder(view);
+		enableFor(holder, position);
+		runRowBinders(holder, position);
 		return view;
 	}
 
+	private void runRowBinders(RowViewHolder holder, int position) {
+		for(int i = 0, n = rowBinders.size(); i < n; i++) {
+			rowBinders.get(i).onBindRow(holder, position);
+		}
+	}
+
+	/**
+	 * Reports separate view types for expanded and collapsed items, so the
+	 * ListView mostly gives a recycled view that already has the state of
+	 * the item it is bound to. This saves layout work while scrolling.
+	 * Off by default.
+	 * <br/>
+	 * The ListView only asks for the view type count when the adapter is
+	 * set, so call this before setting the adapter on the list. With
+	 * SlideExpandableListView use its setSeparateExpandedViewTypes instead.
+	 *
+	 * @param separate true to use separate view types
+	 * @exception IllegalStateException if the adapter is set on a list
+	 */
+	public void setSeparateExpandedViewTypes(boolean separate) {
+		if(separate != separateExpandedViewTypes && observerCount > 0) {
+			throw new IllegalStateException("Can not change the view types while the adapter is set on a list");
+		}
+		separateExpandedViewTypes = separate;
+	}
+
+	public boolean isSeparateExpandedViewTypes() {
+		return separateExpandedViewTypes;
+	}
+
+	@Override
+	public void registerDataSetObserver(DataSetObserver observer) {
+		super.registerDataSetObserver(observer);
+		observerCount++;
+	}
+
+	@Override
+	public void unregisterDataSetObserver(DataSetObserver observer) {
+		super.unregisterDataSetObserver(observer);
+		observerCount--;
+	}
+
+	@Override
+	public int getViewTypeCount() {
+		int count = wrapped.getViewTypeCount();
+		return separateExpandedViewTypes ? count * 2 : count;
+	}
+
+	@Override
+	public int getItemViewType(int position) {
+		int type = wrapped.getItemViewType(position);
+		if(!separateExpandedViewTypes || type == IGNORE_ITEM_VIEW_TYPE) {
+			return type;
+		}
+		return type * 2 + (expansionModel.isExpanded(position) ? 1 : 0);
+	}
+
+	/**
+	 * Returns the holder of the list item view, creating it the first time
+	 * the view is bound. The toggle button and expandable view are looked
+	 * up only once per view.
+	 */
+	private RowViewHolder getRowViewHolder(View view) {
+		RowViewHolder holder = RowViewHolder.get(view);
+		if(holder == null) {
+			holder = new RowViewHolder(view, getExpandToggleButton(view), getExpandableView(view));
+			ToggleClickListener listener = new ToggleClickListener(holder);
+			holder.toggleClickListener = listener;
+			holder.toggleTouchListener = listener;
+		}
+		return holder;
+	}
+
 	/**
 	 * This method is used to get the Button view that should
 	 * expand or collapse the Expandable View.
@@ -159,6 +339,9 @@ public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdap
 	 * return parent.findViewById(R.id.expandable)
 	 * </pre>
 	 *
+	 * If the list has an ExpandableContentPool, this must be an
+	 * empty ViewGroup, the content is added when the item expands.
+	 *
 	 * @see #getExpandToggleButton(View)
 	 * @param parent the list view item
 	 * @ensure return!=null
@@ -189,6 +372,23 @@ public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdap
 		
 		animationDuration = duration;
 	}
+	/**
+	 * Lets the way items expand and collapse adapt to how smooth the
+	 * animations run on the device, and to the system animator duration
+	 * scale. Off by default.
+	 *
+	 * @see AdaptiveMotion
+	 * @param motion the motion to use, or null to always animate
+	 *  for getAnimationDuration()
+	 */
+	public void setAdaptiveMotion(AdaptiveMotion motion) {
+		adaptiveMotion = motion;
+	}
+
+	public AdaptiveMotion getAdaptiveMotion() {
+		return adaptiveMotion;
+	}
+
 	/**
 	 * Check's if any position is currently Expanded
 	 * To collapse the open item @see collapseLastOpen
@@ -196,106 +396,492 @@ public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdap
 	 * @return boolean True if there is currently an item expanded, otherwise false
 	 */
 	public boolean isAnyItemExpanded() {
-		return (lastOpenPosition != -1) ? true : false;
+		return expansionModel.getSnapshot().isAnyExpanded();
 	}
 
 	public void enableFor(View parent, int position) {
-		View more = getExpandToggleButton(parent);
-		View itemToolbar = getExpandableView(parent);
-		itemToolbar.measure(parent.getWidth(), parent.getHeight());
+		enableFor(getRowViewHolder(parent), position);
+	}
 
-		enableFor(more, itemToolbar, position);
-		itemToolbar.requestLayout();
+	private void enableFor(RowViewHolder holder, int position) {
+		View target = holder.getExpandableView();
+		holder.position = position;
+		holder.pooled = ExpandableContentPool.get(parent.get()) != null;
+		boolean open = expansionModel.isExpanded(position);
+		int height = 0;
+		if(open) {
+			attachExpandableContent(holder, position);
+			height = getExpandableHeight(holder, position);
+		} else {
+			releaseExpandableContent(holder);
+			// a pooled container is empty when collapsed, so it is not measured
+			if(!holder.pooled) {
+				height = getExpandableHeight(holder, position);
+			}
+		}
+		// a recycled view that already has the right state needs no new layout
+		if(updateExpandable(target, open, height)) {
+			target.requestLayout();
+		}
+
+		holder.getExpandToggleButton().setOnClickListener(holder.toggleClickListener);
+		holder.getExpandToggleButton().setOnTouchListener(holder.toggleTouchListener);
 	}
 
+	/**
+	 * Returns the height of the expandable view from the cache,
+	 * or measures it if it is not cached yet.
+	 * <br/>
+	 * The view is measured for the width it gets in the list, which is
+	 * also part of the key. Until the list is laid out that width is not
+	 * known, the height is then measured without a width and not cached.
+	 * <br/>
+	 * Pooled content that is not bound yet (while flinging) is not
+	 * measured, the height of the unbound content would be cached for
+	 * every item with the same key. It is measured when it is bound.
+	 */
+	private int getExpandableHeight(RowViewHolder holder, int position) {
+		ViewGroup listView = parent.get();
+		int viewType = wrapped.getItemViewType(position);
+		int width = listView != null && listView.getWidth() > 0 ? getExpandableWidth(listView, holder) : 0;
+		Object contentKey = getContentKey(position);
+		int height = width > 0 ? heightCache.get(viewType, width, contentKey) : -1;
+		if(height == -1 && holder.contentBindPending) {
+			// an expanded item does not need the height, it is measured once bound
+			return 0;
+		}
+		if(height == -1) {
+			View target = holder.getExpandableView();
+			int widthSpec = width > 0
+					? MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY)
+					: MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+			target.measure(widthSpec, MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+			height = target.getMeasuredHeight();
+			if(width > 0) {
+				heightCache.put(viewType, width, contentKey, height);
+			}
+			// measured outside of a layout pass, so it has to be laid out again
+			target.requestLayout();
+		}
+		return height;
+	}
 
-	private void enableFor(final View button, final View target, final int position) {
-		if(target == lastOpen && position!=lastOpenPosition) {
-			// lastOpen is recycled, so its reference is false
-			lastOpen = null;
+	/**
+	 * Returns the width the expandable view gets in the list: the width of
+	 * the list without the paddings of the list and of the views between
+	 * the list item and the expandable view, and without their margins.
+	 * The list item itself may not be laid out yet, so its width is not used.
+	 */
+	private static int getExpandableWidth(View listView, RowViewHolder holder) {
+		int width = listView.getWidth() - listView.getPaddingLeft() - listView.getPaddingRight();
+		View itemView = holder.getItemView();
+		for(View view = holder.getExpandableView(); view != itemView; ) {
+			ViewGroup.LayoutParams params = view.getLayoutParams();
+			if(params instanceof ViewGroup.MarginLayoutParams) {
+				width -= ((ViewGroup.MarginLayoutParams) params).leftMargin
+						+ ((ViewGroup.MarginLayoutParams) params).rightMargin;
+			}
+			if(!(view.getParent() instanceof View)) {
+				break;
+			}
+			view = (View) view.getParent();
+			width -= view.getPaddingLeft() + view.getPaddingRight();
 		}
-		if(position == lastOpenPosition) {
-			// re reference to the last view
-			// so when can animate it when collapsed
-			lastOpen = target;
+		return Math.max(0, width);
+	}
+
+	/**
+	 * Takes a content view from the pool of the list, if it has one,
+	 * and binds it to the position. While flinging the content is
+	 * kept invisible, and bound once the list is idle.
+	 */
+	private void attachExpandableContent(RowViewHolder holder, int position) {
+		ExpandableContentPool pool = ExpandableContentPool.get(parent.get());
+		if(pool == null) {
+			return;
 		}
-		int height = viewHeights.get(position, -1);
-		if(height == -1) {
-			viewHeights.put(position, target.getMeasuredHeight());
-			updateExpandable(target,position);
+		if(holder.expandableContent == null) {
+			holder.expandableContent = pool.acquire((ViewGroup) holder.getExpandableView());
+		}
+		if(isFlinging()) {
+			holder.contentBindPending = true;
+			holder.expandableContent.setVisibility(View.INVISIBLE);
 		} else {
-			updateExpandable(target, position);
+			bindExpandableContent(pool, holder);
 		}
+	}
 
-		button.setOnClickListener(new View.OnClickListener() {
-			@Override
-			public void onClick(final View view) {
+	/**
+	 * Same as attachExpandableContent, for use outside of getView. The row
+	 * binders are run again, so they can bind the views in the content.
+	 */
+	private void attachExpandableContentOutsideBind(RowViewHolder holder, int position) {
+		attachExpandableContent(holder, position);
+		if(holder.expandableContent != null) {
+			runRowBinders(holder, position);
+		}
+	}
 
-				Animation a = target.getAnimation();
+	private void bindExpandableContent(ExpandableContentPool pool, RowViewHolder holder) {
+		holder.contentBindPending = false;
+		pool.bind(holder.expandableContent, holder.getPosition());
+		holder.expandableContent.setVisibility(View.VISIBLE);
+	}
 
-				if (a != null && a.hasStarted() && !a.hasEnded()) {
+	private void releaseExpandableContent(RowViewHolder holder) {
+		holder.contentBindPending = false;
+		holder.prepared = false;
+		if(holder.expandableContent == null) {
+			return;
+		}
+		ExpandableContentPool pool = ExpandableContentPool.get(parent.get());
+		if(pool != null) {
+			pool.release(holder.expandableContent);
+		} else {
+			((ViewGroup) holder.getExpandableView()).removeView(holder.expandableContent);
+		}
+		holder.expandableContent = null;
+	}
 
-					a.setAnimationListener(new Animation.AnimationListener() {
-						@Override
-						public void onAnimationStart(Animation animation) {
-						}
+	/**
+	 * Gives the pooled content of a list item back when the ListView moves
+	 * it to its scrap heap, instead of when the view is bound again.
+	 *
+	 * @param view the list item view
+	 * @see android.widget.AbsListView.RecyclerListener
+	 */
+	public void onMovedToScrapHeap(View view) {
+		RowViewHolder holder = RowViewHolder.get(view);
+		if(holder != null) {
+			releaseExpandableContent(holder);
+		}
+	}
 
-						@Override
-						public void onAnimationEnd(Animation animation) {
-							view.performClick();
-						}
+	/**
+	 * Sets the scroll state of the list, SlideExpandableListView calls
+	 * this from its OnScrollListener. Call it yourself when using
+	 * this adapter with another list.
+	 *
+	 * @param scrollState one of the OnScrollListener.SCROLL_STATE_* values
+	 */
+	public void setScrollState(int scrollState) {
+		this.scrollState = scrollState;
+		if(scrollState != OnScrollListener.SCROLL_STATE_IDLE) {
+			// the touch became a scroll, so no item will be clicked
+			cancelPrepare();
+		}
+		if(scrollState == OnScrollListener.SCROLL_STATE_IDLE) {
+			ViewGroup listView = parent.get();
+			if(listView != null) {
+				listView.removeCallbacks(deferredBinder);
+				postNextFrame(listView, deferredBinder);
+			}
+		}
+	}
 
-						@Override
-						public void onAnimationRepeat(Animation animation) {
-						}
-					});
+	private boolean isFlinging() {
+		return scrollState == OnScrollListener.SCROLL_STATE_FLING;
+	}
+
+	/**
+	 * Binds the pooled content that was deferred while flinging, one visible
+	 * list item per frame. The pending items are found through the children
+	 * of the list, so nothing is queued in the adapter itself.
+	 */
+	private final Runnable deferredBinder = new Runnable() {
+		@Override
+		public void run() {
+			ViewGroup listView = parent.get();
+			ExpandableContentPool pool = ExpandableContentPool.get(listView);
+			if(pool == null || scrollState != OnScrollListener.SCROLL_STATE_IDLE) {
+				// will be posted again once the list is idle
+				return;
+			}
+			boolean bound = false;
+			for(int i = 0, n = listView.getChildCount(); i < n; i++) {
+				RowViewHolder holder = RowViewHolder.get(listView.getChildAt(i));
+				if(holder == null || !holder.contentBindPending) {
+					continue;
+				}
+				if(bound) {
+					postNextFrame(listView, this);
+					return;
+				}
+				bindExpandableContent(pool, holder);
+				runRowBinders(holder, holder.getPosition());
+				// the height was not measured while the content was unbound
+				getExpandableHeight(holder, holder.getPosition());
+				bound = true;
+			}
+		}
+	};
+
+	private static void postNextFrame(View view, Runnable runnable) {
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			postOnAnimation(view, runnable);
+		} else {
+			view.postDelayed(runnable, FRAME_DELAY);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static void postOnAnimation(View view, Runnable runnable) {
+		view.postOnAnimation(runnable);
+	}
+
+	/**
+	 * Prepares the expandable view of a collapsed list item for expanding,
+	 * so the animation can start on the first frame after the click.
+	 * The pooled content (if any) is attached and bound, and the height
+	 * is measured if it is not cached.
+	 * <br/>
+	 * The toggle button calls this on touch down. SlideExpandableListView
+	 * calls it for the touched item if enableExpandOnItemClick is used.
+	 *
+	 * @see #cancelPrepare()
+	 * @param itemView the list item view
+	 */
+	public void prepareExpand(View itemView) {
+		RowViewHolder holder = RowViewHolder.get(itemView);
+		if(holder != null) {
+			prepareExpand(holder);
+		}
+	}
+
+	private void prepareExpand(RowViewHolder holder) {
+		int position = holder.getPosition();
+		if(position < 0 || expansionModel.isExpanded(position)) {
+			return;
+		}
+		holder.prepared = true;
+		if(holder.expandableContent == null) {
+			attachExpandableContentOutsideBind(holder, position);
+		}
+		getExpandableHeight(holder, position);
+	}
+
+	/**
+	 * Discards the work of prepareExpand for the items that were not
+	 * expanded, for example because the touch turned into a scroll,
+	 * or ended without a click. The measured heights stay cached.
+	 */
+	public void cancelPrepare() {
+		ViewGroup listView = parent.get();
+		if(listView == null) {
+			return;
+		}
+		for(int i = 0, n = listView.getChildCount(); i < n; i++) {
+			RowViewHolder holder = RowViewHolder.get(listView.getChildAt(i));
+			if(holder != null && holder.prepared) {
+				cancelPrepare(holder);
+			}
+		}
+	}
 
-				} else {
+	private void cancelPrepare(RowViewHolder holder) {
+		holder.prepared = false;
+		// a collapsing item gives its content back when the animation ends
+		Animation animation = holder.getExpandableView().getAnimation();
+		boolean animating = animation != null && animation.hasStarted() && !animation.hasEnded();
+		if(!animating && !expansionModel.isExpanded(holder.getPosition())) {
+			releaseExpandableContent(holder);
+		}
+	}
 
-					target.setAnimation(null);
+	/**
+	 * Click listener for the toggle button, created once per list item view.
+	 * The position is read from the holder when clicked, so rebinding the
+	 * view to another position does not need a new listener.
+	 *
+	 * It also listens to touches on the button, to prepare the
+	 * expandable view before the click happens, and to discard that
+	 * work if the touch does not end in a click.
+	 */
+	private class ToggleClickListener implements View.OnClickListener, View.OnTouchListener {
+		private final RowViewHolder holder;
+
+		/**
+		 * Discards the prepared work if the item was not expanded by a click
+		 */
+		private final Runnable cancelIfNotClicked = new Runnable() {
+			@Override
+			public void run() {
+				if(holder.prepared) {
+					cancelPrepare(holder);
+				}
+			}
+		};
 
-					int type = target.getVisibility() == View.VISIBLE
-							? ExpandCollapseAnimation.COLLAPSE
-							: ExpandCollapseAnimation.EXPAND;
+		/**
+		 * The button posts its click on ACTION_UP, after this listener
+		 * has seen the event. Posting again from here runs
+		 * cancelIfNotClicked after that click.
+		 */
+		private final Runnable postCancelIfNotClicked = new Runnable() {
+			@Override
+			public void run() {
+				holder.getExpandToggleButton().post(cancelIfNotClicked);
+			}
+		};
 
-					// remember the state
-					if (type == ExpandCollapseAnimation.EXPAND) {
-						openItems.set(position, true);
-					} else {
-						openItems.set(position, false);
+		ToggleClickListener(RowViewHolder holder) {
+			this.holder = holder;
+		}
+
+		@Override
+		public boolean onTouch(View view, MotionEvent event) {
+			int action = event.getAction() & MotionEvent.ACTION_MASK;
+			if(action == MotionEvent.ACTION_DOWN) {
+				// a quick second tap must not cancel what this one prepares
+				view.removeCallbacks(postCancelIfNotClicked);
+				view.removeCallbacks(cancelIfNotClicked);
+				prepareExpand(holder);
+			} else if(action == MotionEvent.ACTION_UP && holder.prepared) {
+				// released outside of the button, or after a long press, gives no click
+				view.post(postCancelIfNotClicked);
+			} else if(action == MotionEvent.ACTION_CANCEL && holder.prepared) {
+				cancelPrepare(holder);
+			}
+			// let the button handle the touch as usual
+			return false;
+		}
+
+		@Override
+		public void onClick(final View view) {
+			final View target = holder.getExpandableView();
+			final int position = holder.getPosition();
+
+			Animation a = target.getAnimation();
+
+			if (a != null && a.hasStarted() && !a.hasEnded()) {
+
+				a.setAnimationListener(new Animation.AnimationListener() {
+					@Override
+					public void onAnimationStart(Animation animation) {
 					}
-					// check if we need to collapse a different view
-					if (type == ExpandCollapseAnimation.EXPAND) {
-						if (lastOpenPosition != -1 && lastOpenPosition != position) {
-							if (lastOpen != null) {
-								animateView(lastOpen, ExpandCollapseAnimation.COLLAPSE);
-								notifiyExpandCollapseListener(
-										ExpandCollapseAnimation.COLLAPSE,
-										lastOpen, lastOpenPosition);
-							}
-							openItems.set(lastOpenPosition, false);
-						}
-						lastOpen = target;
-						lastOpenPosition = position;
-					} else if (lastOpenPosition == position) {
-						lastOpenPosition = -1;
+
+					@Override
+					public void onAnimationEnd(Animation animation) {
+						view.performClick();
 					}
-					animateView(target, type);
-					notifiyExpandCollapseListener(type, target, position);
+
+					@Override
+					public void onAnimationRepeat(Animation animation) {
+					}
+				});
+
+			} else {
+
+				target.setAnimation(null);
+
+				boolean expand = target.getVisibility() != View.VISIBLE;
+				// in single expansion mode this also collapses the last expanded item
+				ExpansionModel.Snapshot previous = expansionModel.applyExpanded(position, expand);
+				applyChanges(previous, expansionModel.getSnapshot());
+			}
+		}
+	}
+
+	/**
+	 * Expands and collapses the visible list items of which the state
+	 * differs between the two snapshots. The items that are not visible
+	 * get their state when they are bound.
+	 * <br/>
+	 * In single expansion mode one tap collapses an item and expands
+	 * another, so only the first toggle is reported to the AdaptiveMotion.
+	 */
+	private void applyChanges(ExpansionModel.Snapshot previous, ExpansionModel.Snapshot current) {
+		ViewGroup listView = parent.get();
+		if(listView == null) {
+			return;
+		}
+		boolean reported = false;
+		// collapse first, so the listener sees the collapse before the expand
+		for(int i = 0, n = listView.getChildCount(); i < n; i++) {
+			RowViewHolder holder = RowViewHolder.get(listView.getChildAt(i));
+			if(holder != null && previous.isExpanded(holder.getPosition())
+					&& !current.isExpanded(holder.getPosition())) {
+				View target = holder.getExpandableView();
+				toggleView(target, ExpandCollapseAnimation.COLLAPSE, target.getMeasuredHeight(), !reported);
+				reported = true;
+				notifiyExpandCollapseListener(ExpandCollapseAnimation.COLLAPSE, target, holder.getPosition());
+			}
+		}
+		for(int i = 0, n = listView.getChildCount(); i < n; i++) {
+			RowViewHolder holder = RowViewHolder.get(listView.getChildAt(i));
+			if(holder != null && !previous.isExpanded(holder.getPosition())
+					&& current.isExpanded(holder.getPosition())) {
+				int position = holder.getPosition();
+				View target = holder.getExpandableView();
+				if(holder.expandableContent == null) {
+					attachExpandableContentOutsideBind(holder, position);
 				}
+				toggleView(target, ExpandCollapseAnimation.EXPAND, getExpandableHeight(holder, position), !reported);
+				reported = true;
+				notifiyExpandCollapseListener(ExpandCollapseAnimation.EXPAND, target, position);
 			}
-		});
+		}
 	}
 
-	private void updateExpandable(View target, int position) {
+	/**
+	 * @return true if the visibility or margin of the target changed
+	 */
+	private boolean updateExpandable(View target, boolean open, int height) {
 
 		final LinearLayout.LayoutParams params = (LinearLayout.LayoutParams)target.getLayoutParams();
-		if(openItems.get(position)) {
-			target.setVisibility(View.VISIBLE);
-			params.bottomMargin = 0;
+		int visibility = open ? View.VISIBLE : View.GONE;
+		int bottomMargin = open ? 0 : 0-height;
+		if(target.getVisibility() == visibility && params.bottomMargin == bottomMargin) {
+			return false;
+		}
+		target.setVisibility(visibility);
+		params.bottomMargin = bottomMargin;
+		return true;
+	}
+
+	/**
+	 * Expands or collapses the target view. While the list is flinging
+	 * the new state is applied at once, otherwise it is animated.
+	 * @param target the view to expand or collapse
+	 * @param type either ExpandCollapseAnimation.COLLAPSE
+	 *			 or ExpandCollapseAnimation.EXPAND
+	 * @param height the height of the target when expanded
+	 * @param report true to report the toggle to the AdaptiveMotion
+	 */
+	private void toggleView(View target, int type, int height, boolean report) {
+		int duration = getAnimationDuration();
+		boolean instant = isFlinging();
+		if (!instant && adaptiveMotion != null) {
+			duration = (int) (duration * AdaptiveMotion.getAnimatorDurationScale(target.getContext()));
+			if (adaptiveMotion.getLevel() == AdaptiveMotion.LEVEL_INSTANT) {
+				if (report) {
+					adaptiveMotion.onInstantToggle();
+				}
+				instant = true;
+			} else if (duration == 0) {
+				instant = true;
+			}
+		}
+		if (instant) {
+			target.clearAnimation();
+			updateExpandable(target, type == ExpandCollapseAnimation.EXPAND, height);
+			target.requestLayout();
+			if (type == ExpandCollapseAnimation.COLLAPSE) {
+				releaseCollapsedContent(target);
+			}
 		} else {
-			target.setVisibility(View.GONE);
-			params.bottomMargin = 0-viewHeights.get(position);
+			animateView(target, type, height, duration, report);
+		}
+	}
+
+	/**
+	 * Gives the pooled content of a collapsed view back,
+	 * unless its item was expanded again meanwhile.
+	 */
+	private void releaseCollapsedContent(View target) {
+		RowViewHolder holder = RowViewHolder.fromChild(target);
+		if (holder != null && !expansionModel.isExpanded(holder.getPosition())) {
+			releaseExpandableContent(holder);
 		}
 	}
 
@@ -304,13 +890,21 @@ public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdap
 	 * @param target the view to animate
 	 * @param type the animation type, either ExpandCollapseAnimation.COLLAPSE
 	 *			 or ExpandCollapseAnimation.EXPAND
+	 * @param height the height of the target when expanded
+	 * @param duration the duration of the animation in ms
+	 * @param report true to report the frames to the AdaptiveMotion
 	 */
-	private void animateView(final View target, final int type) {
-		Animation anim = new ExpandCollapseAnimation(
+	private void animateView(final View target, final int type, int height, final int duration,
+			final boolean report) {
+		final ExpandCollapseAnimation anim = new ExpandCollapseAnimation(
 				target,
-				type
+				type,
+				height
 		);
-		anim.setDuration(getAnimationDuration());
+		if (adaptiveMotion != null && adaptiveMotion.getLevel() == AdaptiveMotion.LEVEL_REDUCED) {
+			anim.setLayoutSteps(AdaptiveMotion.REDUCED_LAYOUT_STEPS);
+		}
+		anim.setDuration(duration);
 		anim.setAnimationListener(new AnimationListener() {
 
 			@Override
@@ -321,9 +915,17 @@ public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdap
 
 			@Override
 			public void onAnimationEnd(Animation animation) {
-				if (type == ExpandCollapseAnimation.EXPAND) {
-					if (parent instanceof ListView) {
-						ListView listView = (ListView) parent;
+				if (adaptiveMotion != null && report) {
+					adaptiveMotion.onAnimationFrames(anim.getFrameCount(), anim.getFrameTimeSpan());
+				}
+				if (type == ExpandCollapseAnimation.COLLAPSE) {
+					releaseCollapsedContent(target);
+				}
+				// do not fight a fling that started during the animation
+				if (type == ExpandCollapseAnimation.EXPAND && !isFlinging()) {
+					ViewGroup listParent = parent.get();
+					if (listParent instanceof ListView) {
+						ListView listView = (ListView) listParent;
 						int movement = target.getBottom();
 
 						Rect r = new Rect();
@@ -332,10 +934,10 @@ public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdap
 						listView.getGlobalVisibleRect(r2);
 						
 						if (!visible) {
-							listView.smoothScrollBy(movement, getAnimationDuration());
+							listView.smoothScrollBy(movement, duration);
 						} else {
 							if (r2.bottom == r.bottom) {
-								listView.smoothScrollBy(movement, getAnimationDuration());
+								listView.smoothScrollBy(movement, duration);
 							}
 						}
 					}
@@ -349,68 +951,139 @@ public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdap
 
 	/**
 	 * Closes the current open item.
-	 * If it is current visible it will be closed with an animation.
+	 * If it is current visible it will be closed with an animation,
+	 * unless the list is flinging.
 	 *
 	 * @return true if an item was closed, false otherwise
 	 */
 	public boolean collapseLastOpen() {
-		if(isAnyItemExpanded()) {
+		int lastOpenPosition = expansionModel.getSnapshot().getLastExpandedPosition();
+		if(lastOpenPosition != -1) {
 			// if visible animate it out
-			if(lastOpen != null) {
-				animateView(lastOpen, ExpandCollapseAnimation.COLLAPSE);
-			}
-			openItems.set(lastOpenPosition, false);
-			lastOpenPosition = -1;
+			ExpansionModel.Snapshot previous = expansionModel.applyExpanded(lastOpenPosition, false);
+			applyChanges(previous, expansionModel.getSnapshot());
 			return true;
 		}
 		return false;
 	}
 
-	public Parcelable onSaveInstanceState(Parcelable parcelable) {
-
-		SavedState ss = new SavedState(parcelable);
-		ss.lastOpenPosition = this.lastOpenPosition;
-		ss.openItems = this.openItems;
-		return ss;
+	/**
+	 * Notifies that itemCount items were inserted at positionStart.
+	 * The expanded items after positionStart are moved along,
+	 * so they stay with the same data.
+	 *
+	 * @param positionStart the position of the first inserted item
+	 * @param itemCount the number of inserted items (itemCount >= 0)
+	 */
+	public void notifyItemRangeInserted(int positionStart, int itemCount) {
+		checkRange(positionStart, itemCount);
+		if(itemCount == 0) {
+			return;
+		}
+		expansionModel.insertRange(positionStart, itemCount);
+		// the item count changed, so the ListView must do a full layout
+		notifyDataSetChanged();
 	}
 
-	public void onRestoreInstanceState(SavedState state) {
-
-		if (state != null) {
-			this.lastOpenPosition = state.lastOpenPosition;
-			this.openItems = state.openItems;
+	/**
+	 * Notifies that itemCount items starting at positionStart were removed.
+	 * Removed items lose their expanded state, the expanded items
+	 * after the range are moved along.
+	 *
+	 * @param positionStart the position of the first removed item
+	 * @param itemCount the number of removed items (itemCount >= 0)
+	 */
+	public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+		checkRange(positionStart, itemCount);
+		if(itemCount == 0) {
+			return;
 		}
+		expansionModel.removeRange(positionStart, itemCount);
+		// the item count changed, so the ListView must do a full layout
+		notifyDataSetChanged();
 	}
 
 	/**
-	 * Utility methods to read and write a bitset from and to a Parcel
+	 * Notifies that the item at fromPosition was moved to toPosition.
+	 * Only the items between the two positions are touched, and only
+	 * those that are visible are bound again.
+	 *
+	 * @param fromPosition the old position of the item
+	 * @param toPosition the new position of the item
 	 */
-	private static BitSet readBitSet(Parcel src) {
-		BitSet set = new BitSet();
-		if (src == null) {
-			return set;
+	public void notifyItemMoved(int fromPosition, int toPosition) {
+		checkRange(fromPosition, 1);
+		checkRange(toPosition, 1);
+		if(fromPosition == toPosition) {
+			return;
 		}
-		int cardinality = src.readInt();
+		expansionModel.move(fromPosition, toPosition);
+		int start = Math.min(fromPosition, toPosition);
+		rebindVisibleItems(start, Math.abs(fromPosition - toPosition) + 1);
+	}
 
+	/**
+	 * Notifies that the data of itemCount items starting at positionStart
+	 * changed. Their expanded state is kept. Only the visible items in the
+	 * range are bound again. Heights are cached by content key, so if the
+	 * height of the content changed, getContentKey should return a new key.
+	 *
+	 * If the view type of one of the items changed,
+	 * use notifyDataSetChanged instead.
+	 *
+	 * @param positionStart the position of the first changed item
+	 * @param itemCount the number of changed items (itemCount >= 0)
+	 */
+	public void notifyItemRangeChanged(int positionStart, int itemCount) {
+		checkRange(positionStart, itemCount);
+		rebindVisibleItems(positionStart, itemCount);
+	}
 
-		for (int i = 0; i < cardinality; i++) {
-			set.set(src.readInt());
+	private static void checkRange(int positionStart, int itemCount) {
+		if(positionStart < 0 || itemCount < 0) {
+			throw new IllegalArgumentException("Invalid range: " + positionStart + ", " + itemCount);
 		}
+	}
 
-		return set;
+	/**
+	 * Binds the visible list items in the range again, using their current
+	 * views as convertView. Falls back to notifyDataSetChanged if the
+	 * wrapped adapter does not reuse the view.
+	 */
+	private void rebindVisibleItems(int positionStart, int itemCount) {
+		ViewGroup listView = parent.get();
+		if(listView == null) {
+			return;
+		}
+		int positionEnd = Math.min(positionStart + itemCount, getCount());
+		for(int i = 0, n = listView.getChildCount(); i < n; i++) {
+			View child = listView.getChildAt(i);
+			RowViewHolder holder = RowViewHolder.get(child);
+			if(holder == null || holder.getPosition() < positionStart || holder.getPosition() >= positionEnd) {
+				continue;
+			}
+			if(getView(holder.getPosition(), child, listView) != child) {
+				notifyDataSetChanged();
+				return;
+			}
+		}
 	}
 
-	private static void writeBitSet(Parcel dest, BitSet set) {
-		int nextSetBit = -1;
+	public Parcelable onSaveInstanceState(Parcelable parcelable) {
 
-		if (dest == null || set == null) {
-			return; // at least dont crash
-		}
+		SavedState ss = new SavedState(parcelable);
+		ExpansionModel.Snapshot snapshot = expansionModel.getSnapshot();
+		ss.lastOpenPosition = snapshot.getLastExpandedPosition();
+		ss.openItems = snapshot.toBitSet();
+		return ss;
+	}
 
-		dest.writeInt(set.cardinality());
+	public void onRestoreInstanceState(SavedState state) {
 
-		while ((nextSetBit = set.nextSetBit(nextSetBit + 1)) != -1) {
-			dest.writeInt(nextSetBit);
+		if (state != null) {
+			expansionModel.restore(
+					state.openItems != null ? state.openItems : new BitSet(),
+					state.lastOpenPosition);
 		}
 	}
 
@@ -428,14 +1101,14 @@ public abstract class AbstractSlideExpandableListAdapter extends WrapperListAdap
 		private SavedState(Parcel in) {
 			super(in);
 			lastOpenPosition = in.readInt();
-			openItems = readBitSet(in);
+			openItems = ExpansionStateCodec.decode(in.createIntArray());
 		}
 
 		@Override
 		public void writeToParcel(Parcel out, int flags) {
 			super.writeToParcel(out, flags);
 			out.writeInt(lastOpenPosition);
-			writeBitSet(out, openItems);
+			out.writeIntArray(ExpansionStateCodec.encode(openItems));
 		}
 
 		//required field that makes Parcelables from a Parcel
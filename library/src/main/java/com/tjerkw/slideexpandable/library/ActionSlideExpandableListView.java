@@ -1,9 +1,9 @@
 package com.tjerkw.slideexpandable.library;
 
+import java.lang.ref.WeakReference;
 import android.content.Context;
 import android.util.AttributeSet;
 import android.view.View;
-import android.view.ViewGroup;
 import android.widget.ListAdapter;
 
 /**
@@ -52,30 +52,61 @@ public class ActionSlideExpandableListView extends SlideExpandableListView {
 		public void onClick(View itemView, View clickedView, int position);
 	}
 
-	public void setAdapter(ListAdapter adapter) {
-		super.setAdapter(new WrapperListAdapterImpl(adapter) {
+	/**
+	 * Binds the action buttons of each list item. It is added to the
+	 * SlideExpandableListAdapter as a RowBinder, so the adapter
+	 * is not wrapped a second time.
+	 */
+	private final ActionBinder actionBinder = new ActionBinder(this);
+
+	/**
+	 * Both the RowBinder and the click listener shared by all action buttons.
+	 * The list item and position are found through the RowViewHolder of the
+	 * clicked button.
+	 *
+	 * The adapter may be kept longer than this view, so this
+	 * only holds a weak reference to the list.
+	 */
+	private static class ActionBinder implements RowBinder, OnClickListener {
+		private final WeakReference<ActionSlideExpandableListView> list;
+
+		ActionBinder(ActionSlideExpandableListView list) {
+			this.list = new WeakReference<ActionSlideExpandableListView>(list);
+		}
 
-			@Override
-			public View getView(final int position, View view, ViewGroup viewGroup) {
-				final View listView = wrapped.getView(position, view, viewGroup);
-				// add the action listeners
-				if(buttonIds != null && listView!=null) {
-					for(int id : buttonIds) {
-						View buttonView = listView.findViewById(id);
-						if(buttonView!=null) {
-							buttonView.findViewById(id).setOnClickListener(new OnClickListener() {
-								@Override
-								public void onClick(View view) {
-									if(listener!=null) {
-										listener.onClick(listView, view, position);
-									}
-								}
-							});
-						}
+		@Override
+		public void onBindRow(RowViewHolder holder, int position) {
+			ActionSlideExpandableListView listView = list.get();
+			// add the action listeners
+			if(listView != null && listView.buttonIds != null) {
+				for(int id : listView.buttonIds) {
+					View buttonView = holder.findViewById(id);
+					if(buttonView!=null) {
+						buttonView.setOnClickListener(this);
 					}
 				}
-				return listView;
 			}
-		});
+		}
+
+		@Override
+		public void onClick(View view) {
+			ActionSlideExpandableListView listView = list.get();
+			RowViewHolder holder = RowViewHolder.fromChild(view);
+			if(listView != null && listView.listener!=null && holder!=null) {
+				listView.listener.onClick(holder.getItemView(), view, holder.getPosition());
+			}
+		}
+	}
+
+	@Override
+	public void setAdapter(ListAdapter adapter) {
+		super.setAdapter(adapter);
+		getSlideExpandableAdapter().addRowBinder(actionBinder);
+	}
+
+	@Override
+	public void setAdapter(ListAdapter adapter, int toggle_button_id, int expandable_view_id) {
+		super.setAdapter(adapter, toggle_button_id, expandable_view_id);
+		getSlideExpandableAdapter().addRowBinder(actionBinder);
 	}
 }
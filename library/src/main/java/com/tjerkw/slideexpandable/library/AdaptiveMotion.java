@@ -0,0 +1,153 @@
+package com.tjerkw.slideexpandable.library;
+
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Build;
+import android.provider.Settings;
+
+/**
+ * Chooses how items expand and collapse, based on how smooth the
+ * previous animations ran.
+ *
+ * It starts at LEVEL_FULL. When several toggles in a row deliver
+ * too few frames, it steps down to LEVEL_REDUCED, which lays out the
+ * list only a few times per animation, and then to LEVEL_INSTANT, which
+ * does not animate at all. When toggles run smoothly again it steps
+ * back up. Since instant toggles cannot be measured, LEVEL_INSTANT
+ * tries LEVEL_REDUCED again after a number of toggles.
+ *
+ * A toggle is one change of the list, such as a tap that collapses one
+ * item and expands another. It is judged once, by one of its animations.
+ *
+ * The system animator duration scale is respected, a scale of 0
+ * (animations turned off in the developer options) means instant toggles.
+ *
+ * @see AbstractSlideExpandableListAdapter#setAdaptiveMotion(AdaptiveMotion)
+ */
+public class AdaptiveMotion {
+	public static final int LEVEL_FULL = 0;
+	public static final int LEVEL_REDUCED = 1;
+	public static final int LEVEL_INSTANT = 2;
+
+	/**
+	 * The number of layouts done by an animation at LEVEL_REDUCED
+	 */
+	static final int REDUCED_LAYOUT_STEPS = 4;
+
+	/**
+	 * Assumed display refresh interval in ms
+	 */
+	private static final float FRAME_INTERVAL = 1000f / 60f;
+	/**
+	 * Animations shorter than this (in ms) are not judged,
+	 * they were probably cancelled
+	 */
+	private static final long MIN_MEASURED_TIME = 100;
+
+	private float minFrameRatio = 0.6f;
+	private int stepDownAfter = 2;
+	private int stepUpAfter = 3;
+	private int probeAfter = 10;
+
+	private int level = LEVEL_FULL;
+	private int slowRuns = 0;
+	private int smoothRuns = 0;
+	private int instantToggles = 0;
+
+	/**
+	 * @return LEVEL_FULL, LEVEL_REDUCED or LEVEL_INSTANT
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Sets the share of the expected frames that an animation must deliver
+	 * to count as smooth. Default is 0.6.
+	 */
+	public void setMinFrameRatio(float minFrameRatio) {
+		if(minFrameRatio <= 0 || minFrameRatio > 1) {
+			throw new IllegalArgumentException("Ratio is not in (0, 1]");
+		}
+		this.minFrameRatio = minFrameRatio;
+	}
+
+	/**
+	 * @param stepDownAfter the number of slow toggles in a row after
+	 *  which a cheaper level is used (default 2)
+	 * @param stepUpAfter the number of smooth toggles in a row after
+	 *  which a richer level is used (default 3)
+	 * @param probeAfter the number of instant toggles after which
+	 *  animations are tried again (default 10)
+	 */
+	public void setThresholds(int stepDownAfter, int stepUpAfter, int probeAfter) {
+		if(stepDownAfter < 1 || stepUpAfter < 1 || probeAfter < 1) {
+			throw new IllegalArgumentException("Thresholds must be at least one");
+		}
+		this.stepDownAfter = stepDownAfter;
+		this.stepUpAfter = stepUpAfter;
+		this.probeAfter = probeAfter;
+	}
+
+	/**
+	 * Called once per toggle, when one of its animations ended,
+	 * with the frames that animation delivered.
+	 *
+	 * @param frameCount the number of frames drawn
+	 * @param timeSpan the time in ms between the first and the last frame
+	 */
+	void onAnimationFrames(int frameCount, long timeSpan) {
+		if(timeSpan < MIN_MEASURED_TIME) {
+			return;
+		}
+		float expectedFrames = timeSpan / FRAME_INTERVAL + 1;
+		if(frameCount < expectedFrames * minFrameRatio) {
+			smoothRuns = 0;
+			if(++slowRuns >= stepDownAfter && level < LEVEL_INSTANT) {
+				setLevel(level + 1);
+			}
+		} else {
+			slowRuns = 0;
+			if(++smoothRuns >= stepUpAfter && level > LEVEL_FULL) {
+				setLevel(level - 1);
+			}
+		}
+	}
+
+	/**
+	 * Called once per toggle that was applied without animation
+	 * because of LEVEL_INSTANT.
+	 */
+	void onInstantToggle() {
+		if(level == LEVEL_INSTANT && ++instantToggles >= probeAfter) {
+			setLevel(LEVEL_REDUCED);
+		}
+	}
+
+	private void setLevel(int level) {
+		this.level = level;
+		slowRuns = 0;
+		smoothRuns = 0;
+		instantToggles = 0;
+	}
+
+	/**
+	 * @return the animator duration scale set in the system settings, 1 by default
+	 */
+	static float getAnimatorDurationScale(Context context) {
+		if(context == null) {
+			return 1f;
+		}
+		ContentResolver resolver = context.getContentResolver();
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+			return getGlobalAnimatorDurationScale(resolver);
+		}
+		return Settings.System.getFloat(resolver, "animator_duration_scale", 1f);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+	private static float getGlobalAnimatorDurationScale(ContentResolver resolver) {
+		return Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+	}
+}
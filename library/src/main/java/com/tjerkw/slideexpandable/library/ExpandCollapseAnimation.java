@@ -1,6 +1,6 @@
 package com.tjerkw.slideexpandable.library;
 
-import android.util.Log;
+import android.os.SystemClock;
 import android.view.View;
 import android.view.animation.Animation;
 import android.view.animation.Transformation;
@@ -20,6 +20,18 @@ public class ExpandCollapseAnimation extends Animation {
 	public final static int COLLAPSE = 1;
 	public final static int EXPAND = 0;
 	private LinearLayout.LayoutParams mLayoutParams;
+	/**
+	 * If > 0 the view is laid out only this many times during the animation,
+	 * instead of on every frame
+	 */
+	private int mLayoutSteps = 0;
+	private int mLastStep = -1;
+	/**
+	 * Frame statistics, to find out how smooth the animation ran
+	 */
+	private int mFrameCount = 0;
+	private long mFirstFrameTime = -1;
+	private long mLastFrameTime = -1;
 
 	/**
 	 * Initializes expand collapse animation, has two types, collapse (1) and expand (0).
@@ -28,9 +40,20 @@ public class ExpandCollapseAnimation extends Animation {
 	 * 1 will collapse view and set to gone
 	 */
 	public ExpandCollapseAnimation(View view, int type) {
+		this(view, type, view.getMeasuredHeight());
+	}
+
+	/**
+	 * Initializes expand collapse animation with a known height,
+	 * so the view does not need to be measured first.
+	 * @param view The view to animate
+	 * @param type The type of animation, EXPAND or COLLAPSE
+	 * @param endHeight The height of the view when expanded
+	 */
+	public ExpandCollapseAnimation(View view, int type, int endHeight) {
 
 		mAnimatedView = view;
-		mEndHeight = mAnimatedView.getMeasuredHeight();
+		mEndHeight = endHeight;
 		mLayoutParams = ((LinearLayout.LayoutParams) view.getLayoutParams());
 		mType = type;
 		if(mType == EXPAND) {
@@ -43,17 +66,53 @@ public class ExpandCollapseAnimation extends Animation {
 		view.setVisibility(View.VISIBLE);
 	}
 
+	/**
+	 * Makes the animation cheaper, by only laying out the view a
+	 * number of times instead of on every frame.
+	 *
+	 * @param steps the number of layouts, or 0 to lay out on every frame
+	 */
+	public void setLayoutSteps(int steps) {
+		mLayoutSteps = steps;
+	}
+
+	/**
+	 * @return the number of frames drawn so far
+	 */
+	public int getFrameCount() {
+		return mFrameCount;
+	}
+
+	/**
+	 * @return the time in ms between the first and the last frame drawn so far
+	 */
+	public long getFrameTimeSpan() {
+		return mFirstFrameTime == -1 ? 0 : mLastFrameTime - mFirstFrameTime;
+	}
+
 	@Override
 	protected void applyTransformation(float interpolatedTime, Transformation t) {
 
 		super.applyTransformation(interpolatedTime, t);
+		mLastFrameTime = SystemClock.uptimeMillis();
+		if (mFirstFrameTime == -1) {
+			mFirstFrameTime = mLastFrameTime;
+		}
+		mFrameCount++;
 		if (interpolatedTime < 1.0f) {
+			if (mLayoutSteps > 0) {
+				int step = (int) (interpolatedTime * mLayoutSteps);
+				if (step == mLastStep) {
+					return;
+				}
+				mLastStep = step;
+				interpolatedTime = (float) step / mLayoutSteps;
+			}
 			if(mType == EXPAND) {
 				mLayoutParams.bottomMargin =  -mEndHeight + (int) (mEndHeight * interpolatedTime);
 			} else {
 				mLayoutParams.bottomMargin = - (int) (mEndHeight * interpolatedTime);
 			}
-			Log.d("ExpandCollapseAnimation", "anim height " + mLayoutParams.bottomMargin);
 			mAnimatedView.requestLayout();
 		} else {
 			if(mType == EXPAND) {
@@ -0,0 +1,159 @@
+package com.tjerkw.slideexpandable.library;
+
+import java.util.ArrayList;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+/**
+ * A pool of expandable content views, shared by all items of a list.
+ *
+ * Without a pool every recycled list item carries its own fully built
+ * expandable area. With a pool, the view returned by getExpandableView
+ * is only an empty container (a ViewGroup). A content view is taken
+ * from the pool and added to the container when the item expands, and
+ * given back when the item collapses or is recycled. So the number of
+ * content views depends on the number of expanded items, not on the
+ * number of recycled items.
+ *
+ * The pool is owned by the list, attach it with attachTo(listView) before
+ * setting the adapter. SlideExpandableListView does this for you in
+ * setExpandableContentFactory.
+ */
+public class ExpandableContentPool {
+	/**
+	 * Creates and binds the content views of the pool.
+	 */
+	public interface ContentFactory {
+		/**
+		 * Called when the pool is empty and an item expands.
+		 *
+		 * @param container the (empty) expandable view of the list item,
+		 *  use it as the parent when inflating
+		 * @return a new content view, it should not be added to the container yet
+		 */
+		public View createContentView(ViewGroup container);
+
+		/**
+		 * Called each time a content view is shown for a position.
+		 *
+		 * @param content a view created by createContentView
+		 * @param position the position in the list view
+		 */
+		public void bindContentView(View content, int position);
+	}
+
+	private final ContentFactory factory;
+	private final ArrayList<View> idle = new ArrayList<View>(2);
+	private int maxIdle = 2;
+	private int createdCount = 0;
+
+	public ExpandableContentPool(ContentFactory factory) {
+		if(factory == null) {
+			throw new IllegalArgumentException("ContentFactory is null");
+		}
+		this.factory = factory;
+	}
+
+	/**
+	 * Makes this the pool of the list, replacing any previous pool.
+	 *
+	 * @param list the list view, normally a ListView
+	 */
+	public void attachTo(ViewGroup list) {
+		list.setTag(R.id.slide_expandable_content_pool, this);
+	}
+
+	/**
+	 * Removes the pool from the list, its items keep their content
+	 * in the expandable view again.
+	 */
+	public static void detachFrom(ViewGroup list) {
+		list.setTag(R.id.slide_expandable_content_pool, null);
+	}
+
+	/**
+	 * @return the pool attached to the list, or null if there is none
+	 */
+	public static ExpandableContentPool get(View list) {
+		if(list == null) {
+			return null;
+		}
+		Object tag = list.getTag(R.id.slide_expandable_content_pool);
+		return tag instanceof ExpandableContentPool ? (ExpandableContentPool)tag : null;
+	}
+
+	/**
+	 * Sets how many unused content views are kept for later use.
+	 * Content views given back when the pool is full are dropped.
+	 *
+	 * @param maxIdle the number of views to keep (maxIdle >= 0)
+	 * @exception IllegalArgumentException if parameter is less than zero
+	 */
+	public void setMaxIdle(int maxIdle) {
+		if(maxIdle < 0) {
+			throw new IllegalArgumentException("maxIdle is less than zero");
+		}
+		this.maxIdle = maxIdle;
+		while(idle.size() > maxIdle) {
+			idle.remove(idle.size() - 1);
+		}
+	}
+
+	/**
+	 * @return the number of content views currently not in use
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	/**
+	 * @return the number of content views created by this pool so far
+	 */
+	public int getCreatedCount() {
+		return createdCount;
+	}
+
+	/**
+	 * Drops all unused content views.
+	 */
+	public void clear() {
+		idle.clear();
+	}
+
+	/**
+	 * Takes a content view from the pool, or creates one,
+	 * and adds it to the container.
+	 */
+	View acquire(ViewGroup container) {
+		View content;
+		if(idle.isEmpty()) {
+			content = factory.createContentView(container);
+			content.setTag(R.id.slide_expandable_content_pool, this);
+			createdCount++;
+		} else {
+			content = idle.remove(idle.size() - 1);
+		}
+		container.addView(content);
+		return content;
+	}
+
+	void bind(View content, int position) {
+		factory.bindContentView(content, position);
+	}
+
+	/**
+	 * Removes the content view from its container and keeps it for later use.
+	 */
+	void release(View content) {
+		content.clearAnimation();
+		ViewParent container = content.getParent();
+		if(container instanceof ViewGroup) {
+			((ViewGroup)container).removeView(content);
+		}
+		// views of a previous pool of the list are dropped
+		if(content.getTag(R.id.slide_expandable_content_pool) == this && idle.size() < maxIdle) {
+			idle.add(content);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.tjerkw.slideexpandable.library;
+
+import java.util.concurrent.Executor;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Runs tasks on the main (UI) thread, used as the UI thread
+ * of the ExpansionModel.
+ *
+ * There is one instance, shared by all adapters. The Handler is static,
+ * so an adapter does not reference the main message queue, and through
+ * it whatever other views have posted.
+ */
+final class MainThreadExecutor implements Executor {
+	static final MainThreadExecutor INSTANCE = new MainThreadExecutor();
+
+	private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+
+	private MainThreadExecutor() {
+	}
+
+	@Override
+	public void execute(Runnable runnable) {
+		HANDLER.post(runnable);
+	}
+}
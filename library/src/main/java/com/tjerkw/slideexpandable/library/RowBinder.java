@@ -0,0 +1,24 @@
+package com.tjerkw.slideexpandable.library;
+
+/**
+ * A bind decorator, which is run by the AbstractSlideExpandableListAdapter
+ * for each list item after the wrapped adapter and the expansion logic
+ * have bound it.
+ *
+ * Use this instead of wrapping the adapter again, so all binders share a
+ * single adapter layer and a single RowViewHolder per list item.
+ *
+ * @see AbstractSlideExpandableListAdapter#addRowBinder(RowBinder)
+ */
+public interface RowBinder {
+	/**
+	 * Called each time a list item is bound to a position. If the list
+	 * has an ExpandableContentPool, it is called again when content is
+	 * attached to the item outside of a bind, for example when the item
+	 * expands, so the views in that content can be bound too.
+	 *
+	 * @param holder the holder of the list item view
+	 * @param position the position in the list view
+	 */
+	public void onBindRow(RowViewHolder holder, int position);
+}
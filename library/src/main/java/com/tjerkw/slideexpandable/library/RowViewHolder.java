@@ -0,0 +1,141 @@
+package com.tjerkw.slideexpandable.library;
+
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewParent;
+
+/**
+ * Holds the views of a single list item, so lookups are done once
+ * per recycled view instead of once per bind.
+ *
+ * One holder is attached to each list item view (as a keyed tag) and
+ * is shared by the expansion logic and every RowBinder that is added
+ * to the adapter.
+ */
+public class RowViewHolder {
+	private final View itemView;
+	private final View toggleButton;
+	private final View expandableView;
+	/**
+	 * Views looked up through findViewById, by id.
+	 * A lookup that found nothing is cached as null.
+	 */
+	private final SparseArray<View> views = new SparseArray<View>(4);
+	int position = -1;
+	View.OnClickListener toggleClickListener;
+	View.OnTouchListener toggleTouchListener;
+	/**
+	 * True if the list has an ExpandableContentPool, so the content
+	 * of the expandable view moves between list items.
+	 */
+	boolean pooled;
+	/**
+	 * The content view taken from the ExpandableContentPool,
+	 * or null if the list has no pool or the item is collapsed.
+	 */
+	View expandableContent;
+	/**
+	 * True if expandableContent still has to be bound,
+	 * because it was attached while the list was flinging.
+	 */
+	boolean contentBindPending;
+	/**
+	 * True if the expandable view was prepared on touch down,
+	 * but the item has not been expanded (yet).
+	 */
+	boolean prepared;
+
+	RowViewHolder(View itemView, View toggleButton, View expandableView) {
+		this.itemView = itemView;
+		this.toggleButton = toggleButton;
+		this.expandableView = expandableView;
+		itemView.setTag(R.id.slide_expandable_row_holder, this);
+	}
+
+	/**
+	 * @return the list item view this holder belongs to
+	 */
+	public View getItemView() {
+		return itemView;
+	}
+
+	/**
+	 * @return the position the list item was last bound to
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * @see AbstractSlideExpandableListAdapter#getExpandToggleButton(View)
+	 */
+	public View getExpandToggleButton() {
+		return toggleButton;
+	}
+
+	/**
+	 * @see AbstractSlideExpandableListAdapter#getExpandableView(View)
+	 */
+	public View getExpandableView() {
+		return expandableView;
+	}
+
+	/**
+	 * Same as itemView.findViewById(id), but the result is remembered.
+	 * Only use it for views that are part of the list item layout itself,
+	 * not for views that are added or removed while binding.
+	 * <br/>
+	 * Views in the content of an ExpandableContentPool are looked up each
+	 * time, since that content moves between list items.
+	 *
+	 * @param id the id of the child view
+	 * @return the child view, or null if the list item has no such view
+	 */
+	public View findViewById(int id) {
+		int index = views.indexOfKey(id);
+		if(index >= 0) {
+			return views.valueAt(index);
+		}
+		if(expandableContent != null) {
+			View view = expandableContent.findViewById(id);
+			if(view != null) {
+				return view;
+			}
+		}
+		View view = itemView.findViewById(id);
+		// with a pool, a view that is not found may be in content attached later
+		if(view != null || !pooled) {
+			views.put(id, view);
+		}
+		return view;
+	}
+
+	/**
+	 * @param itemView a list item view
+	 * @return the holder attached to the view, or null if there is none
+	 */
+	public static RowViewHolder get(View itemView) {
+		Object tag = itemView.getTag(R.id.slide_expandable_row_holder);
+		return tag instanceof RowViewHolder ? (RowViewHolder)tag : null;
+	}
+
+	/**
+	 * Finds the holder of the list item that contains the given view.
+	 * Useful in click listeners that are shared by all list items.
+	 *
+	 * @param child a view inside a list item, or the list item itself
+	 * @return the holder, or null if the view is not inside a list item
+	 */
+	public static RowViewHolder fromChild(View child) {
+		View view = child;
+		while(view != null) {
+			RowViewHolder holder = get(view);
+			if(holder != null) {
+				return holder;
+			}
+			ViewParent parent = view.getParent();
+			view = parent instanceof View ? (View)parent : null;
+		}
+		return null;
+	}
+}
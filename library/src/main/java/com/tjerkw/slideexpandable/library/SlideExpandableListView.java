@@ -2,7 +2,10 @@ package com.tjerkw.slideexpandable.library;
 
 import android.os.Parcelable;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ListAdapter;
 import android.widget.ListView;
@@ -15,17 +18,91 @@ import android.widget.WrapperListAdapter;
  */
 class SlideExpandableListView extends ListView {
 	private SlideExpandableListAdapter adapter;
+	private RecyclerListener recyclerListener;
+	private OnScrollListener scrollListener;
+	private boolean separateExpandedViewTypes = false;
 
 	public SlideExpandableListView(Context context) {
 		super(context);
+		init();
 	}
 
 	public SlideExpandableListView(Context context, AttributeSet attrs) {
 		super(context, attrs);
+		init();
 	}
 
 	public SlideExpandableListView(Context context, AttributeSet attrs, int defStyle) {
 		super(context, attrs, defStyle);
+		init();
+	}
+
+	private void init() {
+		super.setOnScrollListener(adapterScrollListener);
+		super.setRecyclerListener(new RecyclerListener() {
+			@Override
+			public void onMovedToScrapHeap(View view) {
+				if(adapter != null) {
+					adapter.onMovedToScrapHeap(view);
+				}
+				if(recyclerListener != null) {
+					recyclerListener.onMovedToScrapHeap(view);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Tells the adapter about scroll state changes, so it does not
+	 * animate or bind pooled content while flinging.
+	 */
+	private final OnScrollListener adapterScrollListener = new OnScrollListener() {
+		@Override
+		public void onScrollStateChanged(AbsListView view, int scrollState) {
+			if(adapter != null) {
+				adapter.setScrollState(scrollState);
+			}
+			if(scrollListener != null) {
+				scrollListener.onScrollStateChanged(view, scrollState);
+			}
+		}
+
+		@Override
+		public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+			if(scrollListener != null) {
+				scrollListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+			}
+		}
+	};
+
+	@Override
+	public void setOnScrollListener(OnScrollListener listener) {
+		this.scrollListener = listener;
+	}
+
+	@Override
+	public void setRecyclerListener(RecyclerListener listener) {
+		this.recyclerListener = listener;
+	}
+
+	/**
+	 * Shares the expandable content views between all list items.
+	 * The view returned by getExpandableView must then be an empty
+	 * ViewGroup, the factory creates and binds the content that is
+	 * put into it when an item expands.
+	 *
+	 * Call this before setAdapter.
+	 *
+	 * @see ExpandableContentPool
+	 * @param factory the factory of the content views, or null to
+	 *  stop using a pool
+	 */
+	public void setExpandableContentFactory(ExpandableContentPool.ContentFactory factory) {
+		if(factory == null) {
+			ExpandableContentPool.detachFrom(this);
+		} else {
+			new ExpandableContentPool(factory).attachTo(this);
+		}
 	}
 
 	/**
@@ -40,16 +117,44 @@ class SlideExpandableListView extends ListView {
 		return false;
 	}
 
+	/**
+	 * Gives expanded and collapsed items separate view types, so a
+	 * recycled item view mostly has the state of the item it is bound to.
+	 *
+	 * Call this before setAdapter: it applies to the adapters set after
+	 * it, since the view types can not change while an adapter is set.
+	 *
+	 * @see AbstractSlideExpandableListAdapter#setSeparateExpandedViewTypes(boolean)
+	 * @param separate true to use separate view types
+	 */
+	public void setSeparateExpandedViewTypes(boolean separate) {
+		separateExpandedViewTypes = separate;
+	}
+
+	public boolean isSeparateExpandedViewTypes() {
+		return separateExpandedViewTypes;
+	}
+
     public void setAdapter(ListAdapter adapter) {
         this.adapter = new SlideExpandableListAdapter(adapter);
+        this.adapter.setSeparateExpandedViewTypes(separateExpandedViewTypes);
         super.setAdapter(this.adapter);
     }
 
     public void setAdapter(ListAdapter adapter, int toggle_button_id, int expandable_view_id) {
         this.adapter = new SlideExpandableListAdapter(adapter, toggle_button_id, expandable_view_id);
+        this.adapter.setSeparateExpandedViewTypes(separateExpandedViewTypes);
         super.setAdapter(this.adapter);
     }
 
+	/**
+	 * @return the SlideExpandableListAdapter that wraps the adapter
+	 *  given to setAdapter, or null if no adapter is set
+	 */
+	public SlideExpandableListAdapter getSlideExpandableAdapter() {
+		return adapter;
+	}
+
     /**
 	 * Registers a OnItemClickListener for this listview which will
 	 * expand the item by default. Any other OnItemClickListener will be overriden.
@@ -59,14 +164,60 @@ class SlideExpandableListView extends ListView {
 	 * Important: This method call setOnItemClickListener, so the value will be reset
 	 */
 	public void enableExpandOnItemClick() {
-		this.setOnItemClickListener(new OnItemClickListener() {
-			@Override
-			public void onItemClick(AdapterView<?> adapterView, View view, int i, long l) {
-				if (adapter != null) {
-					adapter.getExpandToggleButton(view).performClick();
+		this.setOnItemClickListener(expandOnItemClickListener);
+	}
+
+	private final OnItemClickListener expandOnItemClickListener = new OnItemClickListener() {
+		@Override
+		public void onItemClick(AdapterView<?> adapterView, View view, int i, long l) {
+			if (adapter != null) {
+				adapter.getExpandToggleButton(view).performClick();
+			}
+		}
+	};
+
+	/**
+	 * Discards the prepared work of a touch that did not end in an item click
+	 */
+	private final Runnable cancelPrepare = new Runnable() {
+		@Override
+		public void run() {
+			if (adapter != null) {
+				adapter.cancelPrepare();
+			}
+		}
+	};
+
+	/**
+	 * If items expand on click, starts preparing the touched item
+	 * on touch down, so it can expand right after the click.
+	 */
+	@Override
+	public boolean dispatchTouchEvent(MotionEvent event) {
+		if (adapter == null || getOnItemClickListener() != expandOnItemClickListener) {
+			return super.dispatchTouchEvent(event);
+		}
+		int action = event.getAction() & MotionEvent.ACTION_MASK;
+		if (action == MotionEvent.ACTION_DOWN) {
+			// a quick second tap must not cancel what this one prepares
+			removeCallbacks(cancelPrepare);
+			int position = pointToPosition((int) event.getX(), (int) event.getY());
+			if (position != INVALID_POSITION) {
+				View child = getChildAt(position - getFirstVisiblePosition());
+				if (child != null) {
+					adapter.prepareExpand(child);
 				}
 			}
-		});
+		} else if (action == MotionEvent.ACTION_CANCEL) {
+			adapter.cancelPrepare();
+		}
+		boolean handled = super.dispatchTouchEvent(event);
+		if (action == MotionEvent.ACTION_UP) {
+			// the list performs the item click after the pressed state
+			// duration at most, a touch without a click is discarded after it
+			postDelayed(cancelPrepare, ViewConfiguration.getPressedStateDuration());
+		}
+		return handled;
 	}
 
 
@@ -41,14 +41,20 @@ public abstract class WrapperListAdapterImpl extends BaseAdapter implements Wrap
 		return wrapped.isEnabled(i);
 	}
 
+	/**
+	 * Observers are registered with the wrapped adapter, and with this adapter
+	 * so notifications also work if the wrapped adapter is not a BaseAdapter.
+	 */
 	@Override
 	public void registerDataSetObserver(DataSetObserver dataSetObserver) {
 		wrapped.registerDataSetObserver(dataSetObserver);
+		super.registerDataSetObserver(dataSetObserver);
 	}
 
 	@Override
 	public void unregisterDataSetObserver(DataSetObserver dataSetObserver) {
 		wrapped.unregisterDataSetObserver(dataSetObserver);
+		super.unregisterDataSetObserver(dataSetObserver);
 	}
 
 	@Override
@@ -95,6 +101,8 @@ public abstract class WrapperListAdapterImpl extends BaseAdapter implements Wrap
 	public void notifyDataSetChanged() {
 		if (wrapped instanceof BaseAdapter) {
 			((BaseAdapter)wrapped).notifyDataSetChanged();
+		} else {
+			super.notifyDataSetChanged();
 		}
 	}
 	
@@ -102,6 +110,8 @@ public abstract class WrapperListAdapterImpl extends BaseAdapter implements Wrap
 	public void notifyDataSetInvalidated() {
 		if (wrapped instanceof BaseAdapter) {
 			((BaseAdapter)wrapped).notifyDataSetInvalidated();
+		} else {
+			super.notifyDataSetInvalidated();
 		}
 	}
 
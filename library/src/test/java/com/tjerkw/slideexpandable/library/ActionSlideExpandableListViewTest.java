@@ -0,0 +1,120 @@
+package com.tjerkw.slideexpandable.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.AbsListView.OnScrollListener;
+import android.widget.Button;
+import android.widget.LinearLayout;
+
+/**
+ * Checks that the action buttons work when they are in the content of an
+ * ExpandableContentPool, which moves between the list items.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(emulateSdk = 18)
+public class ActionSlideExpandableListViewTest {
+	private static final int ACTION_ID = android.R.id.button1;
+
+	private ActionSlideExpandableListView list;
+	private final List<Integer> clickedPositions = new ArrayList<Integer>();
+
+	@Before
+	public void setUp() {
+		list = new ActionSlideExpandableListView(Robolectric.application);
+		list.setExpandableContentFactory(new ExpandableContentPool.ContentFactory() {
+			@Override
+			public View createContentView(ViewGroup container) {
+				LinearLayout content = new LinearLayout(container.getContext());
+				Button action = new Button(container.getContext());
+				action.setId(ACTION_ID);
+				content.addView(action);
+				return content;
+			}
+
+			@Override
+			public void bindContentView(View content, int position) {
+				((Button) content.findViewById(ACTION_ID)).setText("Action " + position);
+			}
+		});
+		list.setItemActionListener(new ActionSlideExpandableListView.OnActionClickListener() {
+			@Override
+			public void onClick(View itemView, View clickedView, int position) {
+				clickedPositions.add(position);
+			}
+		}, ACTION_ID);
+	}
+
+	private void layout() {
+		list.measure(MeasureSpec.makeMeasureSpec(480, MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(800, MeasureSpec.EXACTLY));
+		list.layout(0, 0, 480, 800);
+	}
+
+	private View row(int position) {
+		View row = list.getChildAt(position - list.getFirstVisiblePosition());
+		assertNotNull("row " + position + " is not visible", row);
+		return row;
+	}
+
+	private void toggle(int position) {
+		row(position).findViewById(R.id.expandable_toggle_button).performClick();
+	}
+
+	private void clickAction(int position) {
+		View action = row(position).findViewById(ACTION_ID);
+		assertNotNull("row " + position + " has no action button", action);
+		action.performClick();
+	}
+
+	@Test
+	public void actionWorksAfterTapToExpand() {
+		list.setAdapter(new TestItemAdapter(20, false));
+		layout();
+
+		toggle(2);
+		clickAction(2);
+
+		assertEquals(1, clickedPositions.size());
+		assertEquals(2, (int) clickedPositions.get(0));
+	}
+
+	@Test
+	public void actionWorksAfterContentMovedToAnotherRow() {
+		list.setAdapter(new TestItemAdapter(20, false));
+		SlideExpandableListAdapter adapter = list.getSlideExpandableAdapter();
+		adapter.getExpansionModel().setMultipleExpansion(true);
+		// row 0 is bound expanded, so its action button is looked up while bound
+		adapter.getExpansionModel().applyExpanded(0, true);
+		layout();
+		View firstContent = row(0).findViewById(ACTION_ID);
+
+		// toggle without animations, so collapsed content goes back to the pool at once
+		adapter.setScrollState(OnScrollListener.SCROLL_STATE_FLING);
+		toggle(0);
+		toggle(1);
+		toggle(0);
+
+		// row 1 got the content of row 0, row 0 got new content
+		assertEquals(firstContent, row(1).findViewById(ACTION_ID));
+		assertNotSame(firstContent, row(0).findViewById(ACTION_ID));
+
+		clickAction(0);
+		clickAction(1);
+		assertEquals(2, clickedPositions.size());
+		assertEquals(0, (int) clickedPositions.get(0));
+		assertEquals(1, (int) clickedPositions.get(1));
+	}
+}
@@ -0,0 +1,114 @@
+package com.tjerkw.slideexpandable.library;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ListView;
+import android.widget.TextView;
+
+/**
+ * Checks that an adapter which outlives its list, for example because it
+ * is kept in a retained fragment, does not keep the list items, the list
+ * or the Context of the list alive. It also reports the heap retained
+ * by each adapter, and checks that it stays small.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(emulateSdk = 18)
+public class AdapterLeakTest {
+	private static final int ITEM_COUNT = 20;
+	private static final int BOUND_COUNT = 8;
+	private static final long GC_TIMEOUT = 5000;
+	/**
+	 * The adapter itself only holds the expansion state and the height
+	 * cache, anything near this means it holds on to views or content
+	 */
+	private static final long MAX_RETAINED_SIZE = 16 * 1024;
+
+	@Test
+	public void adapterDoesNotRetainTornDownList() {
+		SlideExpandableListAdapter adapter = new SlideExpandableListAdapter(new TestItemAdapter(ITEM_COUNT, true));
+		assertTornDown("without pool", adapter, bindAndTearDown(adapter, false));
+	}
+
+	@Test
+	public void adapterDoesNotRetainTornDownListWithContentPool() {
+		SlideExpandableListAdapter adapter = new SlideExpandableListAdapter(new TestItemAdapter(ITEM_COUNT, false));
+		assertTornDown("with pool", adapter, bindAndTearDown(adapter, true));
+	}
+
+	private void assertTornDown(String name, SlideExpandableListAdapter adapter, List<WeakReference<Object>> tornDown) {
+		LeakInspector.Report report = LeakInspector.forAdapter(adapter).inspect(adapter);
+		System.out.println("Adapter " + name + ": " + report);
+		assertTrue(report.toString(), report.isLeakFree());
+		assertTrue(report.toString(), report.getRetainedSize() < MAX_RETAINED_SIZE);
+		for(WeakReference<Object> reference : tornDown) {
+			assertTrue("still reachable: " + reference.get(), LeakInspector.awaitCollected(reference, GC_TIMEOUT));
+		}
+		// the adapter itself stays usable
+		assertTrue(adapter.isAnyItemExpanded());
+	}
+
+	/**
+	 * Binds rows of a new list, with some of them expanded, and tears the
+	 * list down again. Kept in its own method, so no local variable keeps
+	 * the list alive.
+	 *
+	 * @return weak references to the list, its Context and the bound rows
+	 */
+	private List<WeakReference<Object>> bindAndTearDown(SlideExpandableListAdapter adapter, boolean pooled) {
+		// stands in for the Activity
+		Context host = new ContextWrapper(Robolectric.application);
+		ListView list = new ListView(host);
+		if(pooled) {
+			new ExpandableContentPool(new TextContentFactory()).attachTo(list);
+		}
+		list.setAdapter(adapter);
+
+		adapter.getExpansionModel().setMultipleExpansion(true);
+		adapter.getExpansionModel().applyExpanded(1, true);
+		adapter.getExpansionModel().applyExpanded(3, true);
+
+		List<WeakReference<Object>> references = new ArrayList<WeakReference<Object>>();
+		references.add(new WeakReference<Object>(host));
+		references.add(new WeakReference<Object>(list));
+		View convertView = null;
+		for(int i = 0; i < BOUND_COUNT; i++) {
+			View row = adapter.getView(i, convertView, list);
+			references.add(new WeakReference<Object>(row));
+			// recycle every other row, like the ListView does while scrolling
+			if(i % 2 == 0) {
+				adapter.onMovedToScrapHeap(row);
+				convertView = row;
+			} else {
+				convertView = null;
+			}
+		}
+
+		// what the ListView does when it is detached from its window
+		list.setAdapter(null);
+		return references;
+	}
+
+	private static class TextContentFactory implements ExpandableContentPool.ContentFactory {
+		@Override
+		public View createContentView(ViewGroup container) {
+			return new TextView(container.getContext());
+		}
+
+		@Override
+		public void bindContentView(View content, int position) {
+			((TextView) content).setText("Actions of item " + position);
+		}
+	}
+}
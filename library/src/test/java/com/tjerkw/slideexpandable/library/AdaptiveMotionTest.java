@@ -0,0 +1,56 @@
+package com.tjerkw.slideexpandable.library;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import android.view.View.MeasureSpec;
+
+/**
+ * Checks that a tap that collapses one item and expands another is
+ * counted as one toggle by the AdaptiveMotion.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(emulateSdk = 18)
+public class AdaptiveMotionTest {
+	private SlideExpandableListView list;
+	private AdaptiveMotion motion;
+
+	@Before
+	public void setUp() {
+		list = new SlideExpandableListView(Robolectric.application);
+		list.setAdapter(new TestItemAdapter(20, true));
+		list.measure(MeasureSpec.makeMeasureSpec(480, MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(800, MeasureSpec.EXACTLY));
+		list.layout(0, 0, 480, 800);
+
+		motion = new AdaptiveMotion();
+		motion.setThresholds(1, 3, 4);
+		list.getSlideExpandableAdapter().setAdaptiveMotion(motion);
+	}
+
+	private void toggle(int position) {
+		list.getChildAt(position - list.getFirstVisiblePosition())
+				.findViewById(R.id.expandable_toggle_button).performClick();
+	}
+
+	@Test
+	public void tapThatMovesTheExpansionIsOneInstantToggle() {
+		motion.onAnimationFrames(2, 1000);
+		motion.onAnimationFrames(2, 1000);
+		assertEquals(AdaptiveMotion.LEVEL_INSTANT, motion.getLevel());
+
+		toggle(0);
+		// each of these collapses the previous item and expands the next
+		toggle(1);
+		toggle(2);
+		assertEquals(AdaptiveMotion.LEVEL_INSTANT, motion.getLevel());
+
+		toggle(3);
+		assertEquals(AdaptiveMotion.LEVEL_REDUCED, motion.getLevel());
+	}
+}
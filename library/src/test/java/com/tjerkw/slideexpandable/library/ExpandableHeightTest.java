@@ -0,0 +1,55 @@
+package com.tjerkw.slideexpandable.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import android.view.View.MeasureSpec;
+
+import com.tjerkw.slideexpandable.core.HeightCache;
+
+/**
+ * Checks that heights are cached for the width the expandable view is
+ * measured with, not for the width of the list.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(emulateSdk = 18)
+public class ExpandableHeightTest {
+	private static final int LIST_WIDTH = 480;
+
+	private static void layoutList(int horizontalPadding, HeightCache cache) {
+		SlideExpandableListView list = new SlideExpandableListView(Robolectric.application);
+		list.setPadding(horizontalPadding, 0, horizontalPadding, 0);
+		list.setAdapter(new TestItemAdapter(5, true));
+		list.getSlideExpandableAdapter().setHeightCache(cache);
+		list.measure(MeasureSpec.makeMeasureSpec(LIST_WIDTH, MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(800, MeasureSpec.EXACTLY));
+		list.layout(0, 0, LIST_WIDTH, 800);
+	}
+
+	@Test
+	public void heightIsCachedForTheAvailableWidth() {
+		HeightCache cache = new HeightCache();
+		layoutList(20, cache);
+
+		assertEquals(1, cache.size());
+		assertTrue(cache.get(0, LIST_WIDTH - 40, null) != -1);
+		assertEquals(-1, cache.get(0, LIST_WIDTH, null));
+	}
+
+	@Test
+	public void listsWithDifferentPaddingDoNotShareHeights() {
+		HeightCache cache = new HeightCache();
+		layoutList(0, cache);
+		// a list of the same width with less room must not reuse that height
+		layoutList(100, cache);
+
+		assertEquals(2, cache.size());
+		assertTrue(cache.get(0, LIST_WIDTH, null) != -1);
+		assertTrue(cache.get(0, LIST_WIDTH - 200, null) != -1);
+	}
+}
@@ -0,0 +1,309 @@
+package com.tjerkw.slideexpandable.library;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+
+/**
+ * Harness to check that an adapter does not keep list items, the ListView
+ * or the Activity alive after they are torn down.
+ *
+ * It walks the object graph that is strongly reachable from a root object
+ * through instance fields, arrays, collections and maps, and reports the
+ * paths to every reachable object of a forbidden type. Weak and soft
+ * references are not followed. It also gives an estimate of the heap
+ * retained by the root.
+ *
+ * Only reflection is used. The tests that use it run on the JVM with
+ * Robolectric, which provides the Android classes the adapters need.
+ *
+ * @see AdapterLeakTest
+ */
+class LeakInspector {
+	/**
+	 * Estimated sizes in bytes, for a VM with compressed references
+	 */
+	private static final int OBJECT_HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+
+	private final List<Class<?>> forbiddenTypes = new ArrayList<Class<?>>();
+	private final List<Class<?>> ignoredTypes = new ArrayList<Class<?>>();
+	private final IdentityHashMap<Object, Boolean> ignored = new IdentityHashMap<Object, Boolean>();
+
+	/**
+	 * Reports any reachable instance of the type (or a subclass of it).
+	 * The graph is not walked any further into those instances.
+	 */
+	public LeakInspector forbid(Class<?> type) {
+		forbiddenTypes.add(type);
+		return this;
+	}
+
+	/**
+	 * Does not walk into the object, and does not count its size.
+	 */
+	public LeakInspector ignore(Object object) {
+		if(object != null) {
+			ignored.put(object, Boolean.TRUE);
+		}
+		return this;
+	}
+
+	/**
+	 * Does not walk into instances of the type (or a subclass of it).
+	 * Threads and class loaders are always ignored.
+	 */
+	public LeakInspector ignoreType(Class<?> type) {
+		ignoredTypes.add(type);
+		return this;
+	}
+
+	/**
+	 * Creates an inspector that forbids Views and Activities.
+	 * The adapter wrapped by the given adapter is ignored, since what it
+	 * references is up to the app. So are Handlers, Loopers and message
+	 * queues: a queue holds whatever views have posted, which would be
+	 * reported as leaks of the adapter.
+	 */
+	public static LeakInspector forAdapter(WrapperListAdapterImpl adapter) {
+		return new LeakInspector()
+				.forbid(View.class)
+				.forbid(Activity.class)
+				.ignoreType(Handler.class)
+				.ignoreType(Looper.class)
+				.ignoreType(MessageQueue.class)
+				.ignore(adapter.getWrappedAdapter());
+	}
+
+	/**
+	 * Walks the graph reachable from root.
+	 *
+	 * @param root the object to inspect, normally an adapter
+	 * @return the report
+	 */
+	public Report inspect(Object root) {
+		Report report = new Report();
+		// maps each visited object to the object it was reached from and the edge name
+		IdentityHashMap<Object, Object[]> visited = new IdentityHashMap<Object, Object[]>();
+		LinkedList<Object> queue = new LinkedList<Object>();
+		visited.put(root, new Object[] { null, root.getClass().getSimpleName() });
+		queue.add(root);
+
+		while(!queue.isEmpty()) {
+			Object object = queue.removeFirst();
+			if(isForbidden(object)) {
+				report.leaks.add(pathTo(visited, object));
+				continue;
+			}
+			report.objectCount++;
+			report.retainedSize += shallowSize(object);
+
+			if(object.getClass().isArray()) {
+				if(!object.getClass().getComponentType().isPrimitive()) {
+					for(int i = 0, n = Array.getLength(object); i < n; i++) {
+						visit(visited, queue, object, "[" + i + "]", Array.get(object, i));
+					}
+				}
+			} else if(object instanceof Map && !isAccessible(object.getClass())) {
+				for(Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+					visit(visited, queue, object, "[key]", entry.getKey());
+					visit(visited, queue, object, "[" + entry.getKey() + "]", entry.getValue());
+				}
+			} else if(object instanceof Collection && !isAccessible(object.getClass())) {
+				int i = 0;
+				for(Object element : (Collection<?>) object) {
+					visit(visited, queue, object, "[" + i++ + "]", element);
+				}
+			} else {
+				for(Class<?> type = object.getClass(); type != null; type = type.getSuperclass()) {
+					if(type == Reference.class) {
+						// weak and soft references do not retain their referent
+						continue;
+					}
+					for(Field field : type.getDeclaredFields()) {
+						if(Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+							continue;
+						}
+						Object value;
+						try {
+							field.setAccessible(true);
+							value = field.get(object);
+						} catch(Exception e) {
+							// not accessible on this VM, only its size is counted
+							continue;
+						}
+						visit(visited, queue, object, field.getName(), value);
+					}
+				}
+			}
+		}
+		return report;
+	}
+
+	private void visit(IdentityHashMap<Object, Object[]> visited, LinkedList<Object> queue,
+			Object from, String edge, Object to) {
+		if(to == null || visited.containsKey(to) || ignored.containsKey(to)
+				|| to instanceof Class || to instanceof String
+				|| to instanceof Thread || to instanceof ClassLoader) {
+			return;
+		}
+		for(int i = 0, n = ignoredTypes.size(); i < n; i++) {
+			if(ignoredTypes.get(i).isInstance(to)) {
+				return;
+			}
+		}
+		visited.put(to, new Object[] { from, edge });
+		queue.add(to);
+	}
+
+	private boolean isForbidden(Object object) {
+		for(int i = 0, n = forbiddenTypes.size(); i < n; i++) {
+			if(forbiddenTypes.get(i).isInstance(object)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Classes of the platform may not be open to reflection, so their
+	 * collections are walked through the public interface instead.
+	 */
+	private static boolean isAccessible(Class<?> type) {
+		String name = type.getName();
+		return !(name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("android."));
+	}
+
+	private static String pathTo(IdentityHashMap<Object, Object[]> visited, Object object) {
+		StringBuilder path = new StringBuilder(object.getClass().getName());
+		for(Object[] link = visited.get(object); link != null; link = visited.get(link[0])) {
+			path.insert(0, link[1] + " -> ");
+			if(link[0] == null) {
+				break;
+			}
+		}
+		return path.toString();
+	}
+
+	private static long shallowSize(Object object) {
+		Class<?> type = object.getClass();
+		if(type.isArray()) {
+			return align(ARRAY_HEADER + (long) Array.getLength(object) * sizeOf(type.getComponentType()));
+		}
+		long size = OBJECT_HEADER;
+		for(; type != null; type = type.getSuperclass()) {
+			for(Field field : type.getDeclaredFields()) {
+				if(!Modifier.isStatic(field.getModifiers())) {
+					size += sizeOf(field.getType());
+				}
+			}
+		}
+		return align(size);
+	}
+
+	private static int sizeOf(Class<?> type) {
+		if(type == long.class || type == double.class) {
+			return 8;
+		} else if(type == int.class || type == float.class) {
+			return 4;
+		} else if(type == short.class || type == char.class) {
+			return 2;
+		} else if(type == byte.class || type == boolean.class) {
+			return 1;
+		}
+		return REFERENCE;
+	}
+
+	private static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+
+	/**
+	 * Runs the garbage collector until the reference is cleared,
+	 * to check that a torn down object is no longer reachable at all.
+	 *
+	 * @param reference a weak reference to the torn down object
+	 * @param timeoutMillis how long to keep trying
+	 * @return true if the object was collected
+	 */
+	public static boolean awaitCollected(Reference<?> reference, long timeoutMillis) {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while(reference.get() != null) {
+			if(System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Runtime.getRuntime().gc();
+			System.runFinalization();
+			try {
+				Thread.sleep(10);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return reference.get() == null;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The result of an inspection.
+	 */
+	public static class Report {
+		private final List<String> leaks = new ArrayList<String>();
+		private long retainedSize;
+		private int objectCount;
+
+		/**
+		 * @return true if no object of a forbidden type is reachable
+		 */
+		public boolean isLeakFree() {
+			return leaks.isEmpty();
+		}
+
+		/**
+		 * @return for each reachable object of a forbidden type, the
+		 *  path of fields by which it is reached
+		 */
+		public List<String> getLeaks() {
+			return leaks;
+		}
+
+		/**
+		 * @return the estimated number of bytes retained by the root,
+		 *  not counting forbidden and ignored objects, Strings and Classes
+		 */
+		public long getRetainedSize() {
+			return retainedSize;
+		}
+
+		/**
+		 * @return the number of objects counted in the retained size
+		 */
+		public int getObjectCount() {
+			return objectCount;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder s = new StringBuilder();
+			s.append("retained ").append(retainedSize).append(" bytes in ")
+					.append(objectCount).append(" objects");
+			for(String leak : leaks) {
+				s.append("\nleaks ").append(leak);
+			}
+			return s.toString();
+		}
+	}
+}
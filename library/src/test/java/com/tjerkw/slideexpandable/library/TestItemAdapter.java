@@ -0,0 +1,69 @@
+package com.tjerkw.slideexpandable.library;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+/**
+ * Item views with the default toggle button and expandable ids, built
+ * in code. Does not hold on to the Context of the list.
+ */
+class TestItemAdapter extends BaseAdapter {
+	private final int count;
+	private final boolean withContent;
+
+	/**
+	 * @param count the number of items
+	 * @param withContent false to leave the expandable view empty,
+	 *  for use with an ExpandableContentPool
+	 */
+	TestItemAdapter(int count, boolean withContent) {
+		this.count = count;
+		this.withContent = withContent;
+	}
+
+	@Override
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public Object getItem(int position) {
+		return Integer.valueOf(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return position;
+	}
+
+	@Override
+	public View getView(int position, View convertView, ViewGroup parent) {
+		if(convertView != null) {
+			return convertView;
+		}
+		Context context = parent.getContext();
+		LinearLayout row = new LinearLayout(context);
+		row.setOrientation(LinearLayout.VERTICAL);
+
+		Button toggle = new Button(context);
+		toggle.setId(R.id.expandable_toggle_button);
+		row.addView(toggle, new LinearLayout.LayoutParams(
+				ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+
+		LinearLayout expandable = new LinearLayout(context);
+		expandable.setId(R.id.expandable);
+		if(withContent) {
+			TextView content = new TextView(context);
+			content.setText("Item actions");
+			expandable.addView(content);
+		}
+		row.addView(expandable, new LinearLayout.LayoutParams(
+				ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+		return row;
+	}
+}